@@ -0,0 +1,9 @@
+package conwaygame;
+/*
+ * Enum class for the different backends GameOfLife can compute generations with
+ * 
+ * BOOLEAN is the original boolean[][] grid, the others are LifeEngine implementations.
+ */
+public enum Backend {
+    BOOLEAN, PACKED, HASHLIFE, SPARSE, TILED, LOOKUP;
+}
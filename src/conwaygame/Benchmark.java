@@ -0,0 +1,218 @@
+package conwaygame;
+/*
+ * Benchmark for the different GameOfLife backends. Runs the same random board on every
+ * backend and prints how many cells per second each one computes, then times the
+ * union-find behind numOfCommunities() against the original int[][] version on a few
+ * board sizes and densities.
+ * 
+ * Usage: java conwaygame.Benchmark [size] [generations] [density]
+ */
+import java.util.Arrays;
+import java.util.Random;
+
+public class Benchmark {
+
+    public static void main(String[] args) {
+        int size = (args.length > 0) ? Integer.parseInt(args[0]) : 1024;
+        int generations = (args.length > 1) ? Integer.parseInt(args[1]) : 100;
+        double density = (args.length > 2) ? Double.parseDouble(args[2]) : 0.3;
+
+        boolean[][] grid = randomGrid(size, size, density, 42);
+        StdOut.printf("%d x %d board, %d generations, density %.2f%n", size, size, generations, density);
+
+        for (Backend backend : Backend.values()) {
+            GameOfLife game = new GameOfLife(grid);
+            game.setBackend(backend);
+            game.nextGeneration(Math.max(1, generations / 10)); // Warm up the JIT
+
+            long start = System.nanoTime();
+            game.nextGeneration(generations);
+            double seconds = (System.nanoTime() - start) / 1e9;
+            double cellsPerSecond = (double) size * size * generations / seconds;
+            StdOut.printf("%-8s %10.1f ms %14.0f cells/s  (%d alive)%n", backend, seconds * 1000,
+                    cellsPerSecond, game.getTotalAliveCells());
+        }
+
+        benchmarkUnionFind();
+    }
+
+    private static final int[] UNION_FIND_SIZES = { 512, 2048 };
+    private static final double[] UNION_FIND_DENSITIES = { 0.3, 0.6 };
+    private static final int UNION_FIND_WARMUP = 3; // Rounds of each union-find thrown away before timing
+    private static final int UNION_FIND_ROUNDS = 7;
+
+    /**
+     * Times both union-finds on random boards of every size and density above. Both are
+     * warmed up first, then they take turns going first so neither always runs on a cold
+     * cache or right after the other's garbage, and the median round of each is reported.
+     */
+    private static void benchmarkUnionFind() {
+        StdOut.printf("union-find, median of %d rounds:%n", UNION_FIND_ROUNDS);
+        for (int size : UNION_FIND_SIZES) {
+            for (double density : UNION_FIND_DENSITIES) {
+                boolean[][] grid = randomGrid(size, size, density, 42);
+                int[] pairs = unionPairs(grid);
+
+                int legacyRoots = 0, flatRoots = 0;
+                for (int round = 0; round < UNION_FIND_WARMUP; round++) {
+                    legacyRoots = legacyUnionFind(pairs, size, size);
+                    flatRoots = flatUnionFind(pairs, size, size);
+                }
+
+                long[] legacyNanos = new long[UNION_FIND_ROUNDS];
+                long[] flatNanos = new long[UNION_FIND_ROUNDS];
+                for (int round = 0; round < UNION_FIND_ROUNDS; round++) {
+                    if (round % 2 == 0) {
+                        legacyNanos[round] = timeLegacy(pairs, size);
+                        flatNanos[round] = timeFlat(pairs, size);
+                    } else {
+                        flatNanos[round] = timeFlat(pairs, size);
+                        legacyNanos[round] = timeLegacy(pairs, size);
+                    }
+                }
+                StdOut.printf("%5d x %-5d density %.2f, %9d unions: int[][] %8.1f ms, flat int[] %7.1f ms"
+                        + " (%d and %d communities)%n", size, size, density, pairs.length / 2,
+                        median(legacyNanos) / 1e6, median(flatNanos) / 1e6, legacyRoots, flatRoots);
+            }
+        }
+    }
+
+    private static long timeLegacy(int[] pairs, int size) {
+        long start = System.nanoTime();
+        legacyUnionFind(pairs, size, size);
+        return System.nanoTime() - start;
+    }
+
+    private static long timeFlat(int[] pairs, int size) {
+        long start = System.nanoTime();
+        flatUnionFind(pairs, size, size);
+        return System.nanoTime() - start;
+    }
+
+    private static long median(long[] values) {
+        long[] sorted = values.clone();
+        Arrays.sort(sorted);
+        return sorted[sorted.length / 2];
+    }
+
+    /**
+     * Lists every pair of alive neighbors the way numOfCommunities() visits them, so only
+     * the union-find itself is timed. Each alive cell is also paired with itself.
+     */
+    private static int[] unionPairs(boolean[][] grid) {
+        int rows = grid.length, cols = grid[0].length;
+        int[] pairs = new int[16];
+        int pairCount = 0;
+        for (int i = 0; i < rows; i++) {
+            for (int j = 0; j < cols; j++) {
+                if (!grid[i][j])
+                    continue;
+                for (int di = -1; di <= 1; di++) {
+                    for (int dj = -1; dj <= 1; dj++) {
+                        int r = Math.floorMod(i + di, rows), c = Math.floorMod(j + dj, cols);
+                        if (grid[r][c]) {
+                            if (pairCount + 2 > pairs.length)
+                                pairs = Arrays.copyOf(pairs, pairs.length * 2);
+                            pairs[pairCount++] = i * cols + j;
+                            pairs[pairCount++] = r * cols + c;
+                        }
+                    }
+                }
+            }
+        }
+        return Arrays.copyOf(pairs, pairCount);
+    }
+
+    // Unions every pair and counts the alive cells that are their own root, which is the number of communities
+    private static int legacyUnionFind(int[] pairs, int rows, int cols) {
+        LegacyQuickUnionUF legacy = new LegacyQuickUnionUF(rows, cols);
+        for (int k = 0; k < pairs.length; k += 2)
+            legacy.union(pairs[k + 1] / cols, pairs[k + 1] % cols, pairs[k] / cols, pairs[k] % cols);
+        int roots = 0;
+        for (int k = 0; k < pairs.length; k += 2)
+            if (legacy.find(pairs[k] / cols, pairs[k] % cols) == pairs[k] && pairs[k] == pairs[k + 1])
+                roots++;
+        return roots;
+    }
+
+    private static int flatUnionFind(int[] pairs, int rows, int cols) {
+        WeightedQuickUnionUF flat = new WeightedQuickUnionUF(rows, cols);
+        for (int k = 0; k < pairs.length; k += 2)
+            flat.union(pairs[k + 1], pairs[k]);
+        int roots = 0;
+        for (int k = 0; k < pairs.length; k += 2)
+            if (flat.find(pairs[k]) == pairs[k] && pairs[k] == pairs[k + 1])
+                roots++;
+        return roots;
+    }
+
+    /**
+     * Creates a random grid
+     * 
+     * @param rows    number of rows
+     * @param cols    number of columns
+     * @param density chance of each cell being ALIVE
+     * @param seed    seed for the random generator so runs can be compared
+     * @return the new grid
+     */
+    public static boolean[][] randomGrid(int rows, int cols, double density, long seed) {
+        Random random = new Random(seed);
+        boolean[][] grid = new boolean[rows][cols];
+        for (int i = 0; i < rows; i++)
+            for (int j = 0; j < cols; j++)
+                grid[i][j] = random.nextDouble() < density;
+        return grid;
+    }
+
+    /*
+     * The original union-find, kept only to compare against: int[][] arrays, a new int[]
+     * for every find() step and no path compression.
+     */
+    private static class LegacyQuickUnionUF {
+        private int[][] parent, size;
+        private int cols;
+
+        LegacyQuickUnionUF(int rows, int cols) {
+            this.cols = cols;
+            parent = new int[rows][cols];
+            size = new int[rows][cols];
+            for (int i = 0; i < rows; i++) {
+                for (int j = 0; j < cols; j++) {
+                    parent[i][j] = i * cols + j;
+                    size[i][j] = 1;
+                }
+            }
+        }
+
+        int find(int i, int j) {
+            int[] dims = new int[] { i, j };
+            int curParent = parent[i][j];
+            while (dims[0] * cols + dims[1] != curParent) {
+                dims = invert(curParent);
+                curParent = parent[dims[0]][dims[1]];
+            }
+            return curParent;
+        }
+
+        void union(int r1, int c1, int r2, int c2) {
+            int root1 = find(r1, c1);
+            int root2 = find(r2, c2);
+            if (root1 == root2)
+                return;
+            int[] inv1 = invert(root1);
+            int[] inv2 = invert(root2);
+            if (size[inv1[0]][inv1[1]] >= size[inv2[0]][inv2[1]]) {
+                int[] temp = inv1;
+                inv1 = inv2;
+                inv2 = temp;
+                root2 = root1;
+            }
+            parent[inv1[0]][inv1[1]] = root2;
+            size[inv2[0]][inv2[1]] += size[inv1[0]][inv1[1]];
+        }
+
+        private int[] invert(int val) {
+            return new int[] { val / cols, val % cols };
+        }
+    }
+}
@@ -0,0 +1,296 @@
+package conwaygame;
+/*
+ * A board saved in binary: a fixed size header followed by the cells bit-packed exactly
+ * like PackedGrid keeps them (64 cells per long, little-endian, each row starting on a new
+ * long), optionally compressed with Deflater. Files are read and written through NIO
+ * channels in large blocks, so saving and loading costs little more than the I/O.
+ *
+ * Header, big-endian:
+ *   int   MAGIC ("GOLS")
+ *   short version, currently VERSION
+ *   short flags, FLAG_DEFLATE if the body is compressed
+ *   int   rows
+ *   int   cols
+ *   long  generation the board was saved at
+ *   short birth mask and short survival mask of the rule (bit n for n neighbors)
+ *   long  population
+ *   long  length of the body in the file
+ *   int   CRC32 of the uncompressed body followed by the header bytes before it
+ */
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+public class BinarySnapshot {
+
+    public static final int MAGIC = 0x474F4C53; // "GOLS"
+    public static final int VERSION = 1;
+    public static final int FLAG_DEFLATE = 1;
+    public static final short BIRTH = 1 << 3; // B3
+    public static final short SURVIVAL = (1 << 2) | (1 << 3); // S23
+
+    private static final int HEADER_SIZE = 48;
+    private static final int CRC_OFFSET = HEADER_SIZE - 4;
+    private static final int BLOCK_SIZE = 1 << 20; // Bytes moved through the channel at a time
+
+    private final int rows;
+    private final int cols;
+    private final int wordsPerRow;
+    private final long generation;
+    private final long[] words; // Every row in PackedGrid's layout
+    private final int population;
+
+    /**
+     * Creates a snapshot of bit-packed rows
+     *
+     * @param rows       number of rows
+     * @param cols       number of columns
+     * @param generation generation the board is at
+     * @param words      (cols + 63) / 64 longs per row, bit c % 64 of long c / 64 is column c
+     */
+    public BinarySnapshot(int rows, int cols, long generation, long[] words) {
+        if (rows < 1 || cols < 1)
+            throw new IllegalArgumentException("Board must have at least one row and column");
+        this.rows = rows;
+        this.cols = cols;
+        this.wordsPerRow = (cols + 63) >>> 6;
+        if (words.length != (long) rows * wordsPerRow)
+            throw new IllegalArgumentException("Expected " + (long) rows * wordsPerRow + " words");
+        this.generation = generation;
+        this.words = words;
+        int count = 0;
+        for (long word : words)
+            count += Long.bitCount(word);
+        population = count;
+    }
+
+    /**
+     * Creates a snapshot of a boolean[][] grid
+     *
+     * @param grid       grid to save, true denotes an ALIVE cell
+     * @param generation generation the board is at
+     * @return BinarySnapshot of the grid
+     */
+    public static BinarySnapshot of(boolean[][] grid, long generation) {
+        int cols = grid[0].length;
+        int wordsPerRow = (cols + 63) >>> 6;
+        long[] words = new long[grid.length * wordsPerRow];
+        for (int i = 0; i < grid.length; i++)
+            for (int j = 0; j < cols; j++)
+                if (grid[i][j])
+                    words[i * wordsPerRow + (j >>> 6)] |= 1L << j;
+        return new BinarySnapshot(grid.length, cols, generation, words);
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    public int getCols() {
+        return cols;
+    }
+
+    public long getGeneration() {
+        return generation;
+    }
+
+    public int getPopulation() {
+        return population;
+    }
+
+    /**
+     * Unpacks the cells
+     *
+     * @return boolean[][] grid, true denotes an ALIVE cell
+     */
+    public boolean[][] toGrid() {
+        boolean[][] grid = new boolean[rows][cols];
+        for (int i = 0; i < rows; i++)
+            for (int j = 0; j < cols; j++)
+                grid[i][j] = (words[i * wordsPerRow + (j >>> 6)] & (1L << j)) != 0;
+        return grid;
+    }
+
+    /**
+     * Hands the packed rows to a PackedGrid without unpacking them
+     *
+     * @return PackedGrid holding the board
+     */
+    public PackedGrid toPackedGrid() {
+        return new PackedGrid(rows, cols, words);
+    }
+
+    /**
+     * Writes the snapshot to a file
+     *
+     * @param file     name of the file, an existing file is overwritten
+     * @param compress true to compress the body with Deflater, which pays off for
+     *                 boards that are mostly empty or repetitive
+     * @throws IOException if the file cannot be written
+     */
+    public void write(String file, boolean compress) throws IOException {
+        try (FileChannel channel = FileChannel.open(Paths.get(file), StandardOpenOption.WRITE,
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            channel.position(HEADER_SIZE);
+            CRC32 crc = new CRC32();
+            Deflater deflater = compress ? new Deflater(Deflater.BEST_SPEED) : null;
+            ByteBuffer block = ByteBuffer.allocate(BLOCK_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            ByteBuffer packed = ByteBuffer.allocate(BLOCK_SIZE);
+            long bodyLength = 0;
+            try {
+                for (int i = 0; i < words.length; i++) {
+                    block.putLong(words[i]);
+                    boolean last = i == words.length - 1;
+                    if (!block.hasRemaining() || last) {
+                        crc.update(block.array(), 0, block.position());
+                        if (deflater == null) {
+                            block.flip();
+                            bodyLength += writeFully(channel, block);
+                        } else {
+                            deflater.setInput(block.array(), 0, block.position());
+                            if (last)
+                                deflater.finish();
+                            while (!deflater.needsInput() || (last && !deflater.finished())) {
+                                int n = deflater.deflate(packed.array());
+                                packed.clear().limit(n);
+                                bodyLength += writeFully(channel, packed);
+                            }
+                        }
+                        block.clear();
+                    }
+                }
+            } finally {
+                if (deflater != null)
+                    deflater.end();
+            }
+
+            ByteBuffer header = header(compress ? FLAG_DEFLATE : 0, bodyLength);
+            crc.update(header.array(), 0, CRC_OFFSET);
+            header.putInt(CRC_OFFSET, (int) crc.getValue());
+            channel.position(0);
+            writeFully(channel, header);
+        }
+    }
+
+    /**
+     * Reads a snapshot from a file
+     *
+     * @param file name of the file
+     * @return BinarySnapshot in the file
+     * @throws IOException if the file cannot be read, is not a snapshot, uses another
+     *                     rule, or fails its checksum
+     */
+    public static BinarySnapshot read(String file) throws IOException {
+        try (FileChannel channel = FileChannel.open(Paths.get(file), StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            readFully(channel, header);
+            if (header.getInt(0) != MAGIC)
+                throw new IOException(file + " is not a Game of Life snapshot");
+            int version = header.getShort(4);
+            if (version > VERSION)
+                throw new IOException(file + " is snapshot version " + version + ", only " + VERSION + " is supported");
+            int flags = header.getShort(6);
+            int rows = header.getInt(8);
+            int cols = header.getInt(12);
+            long generation = header.getLong(16);
+            if (header.getShort(24) != BIRTH || header.getShort(26) != SURVIVAL)
+                throw new IOException(file + " is for another rule than B3/S23");
+            long population = header.getLong(28);
+            long bodyLength = header.getLong(36);
+            int expectedCrc = header.getInt(CRC_OFFSET);
+            if (rows < 1 || cols < 1 || (long) rows * ((cols + 63) >>> 6) > Integer.MAX_VALUE)
+                throw new IOException(file + " has an invalid size of " + rows + " by " + cols);
+            if (bodyLength != channel.size() - HEADER_SIZE)
+                throw new IOException(file + " is truncated");
+
+            long[] words = new long[rows * ((cols + 63) >>> 6)];
+            CRC32 crc = new CRC32();
+            Inflater inflater = ((flags & FLAG_DEFLATE) != 0) ? new Inflater() : null;
+            ByteBuffer block = ByteBuffer.allocate(BLOCK_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            ByteBuffer packed = ByteBuffer.allocate(BLOCK_SIZE);
+            int w = 0;
+            try {
+                while (w < words.length) {
+                    // Fill the block with whole words of the body, or as much as is left
+                    int wanted = (int) Math.min(BLOCK_SIZE, 8L * (words.length - w));
+                    block.clear().limit(wanted);
+                    if (inflater == null) {
+                        readFully(channel, block);
+                    } else {
+                        while (block.hasRemaining()) {
+                            if (inflater.needsInput()) {
+                                packed.clear();
+                                if (channel.read(packed) <= 0)
+                                    throw new IOException(file + " is truncated");
+                                inflater.setInput(packed.array(), 0, packed.position());
+                            }
+                            int n = inflater.inflate(block.array(), block.position(), block.remaining());
+                            if (n == 0 && (inflater.finished() || inflater.needsDictionary()))
+                                throw new IOException(file + " is truncated");
+                            block.position(block.position() + n);
+                        }
+                    }
+                    crc.update(block.array(), 0, wanted);
+                    block.flip();
+                    while (block.hasRemaining())
+                        words[w++] = block.getLong();
+                }
+            } catch (DataFormatException e) {
+                throw new IOException(file + " is corrupted: " + e.getMessage(), e);
+            } finally {
+                if (inflater != null)
+                    inflater.end();
+            }
+
+            crc.update(header.array(), 0, CRC_OFFSET);
+            if ((int) crc.getValue() != expectedCrc)
+                throw new IOException(file + " is corrupted, its checksum does not match");
+            int wordsPerRow = (cols + 63) >>> 6;
+            long padding = ~(-1L >>> (63 - ((cols - 1) & 63)));
+            for (int r = 0; r < rows; r++)
+                if ((words[r * wordsPerRow + wordsPerRow - 1] & padding) != 0)
+                    throw new IOException(file + " is corrupted, row " + r + " has cells past the last column");
+            BinarySnapshot snapshot = new BinarySnapshot(rows, cols, generation, words);
+            if (snapshot.population != population)
+                throw new IOException(file + " is corrupted, its population does not match");
+            return snapshot;
+        }
+    }
+
+    private ByteBuffer header(int flags, long bodyLength) {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        header.putInt(MAGIC);
+        header.putShort((short) VERSION);
+        header.putShort((short) flags);
+        header.putInt(rows);
+        header.putInt(cols);
+        header.putLong(generation);
+        header.putShort(BIRTH);
+        header.putShort(SURVIVAL);
+        header.putLong(population);
+        header.putLong(bodyLength);
+        header.putInt(0); // CRC, filled in once the body is written
+        header.flip();
+        return header;
+    }
+
+    private static int writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        int length = buffer.remaining();
+        while (buffer.hasRemaining())
+            channel.write(buffer);
+        return length;
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining())
+            if (channel.read(buffer) < 0)
+                throw new IOException("Snapshot is truncated");
+    }
+}
@@ -4,6 +4,9 @@ package conwaygame;
  */
 
 import java.awt.Color;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.Arrays;
 
 public class Board extends Rectangle {
     public int rows;
@@ -17,6 +20,40 @@ public class Board extends Rectangle {
     public double lowerY;
     public double upperY;
 
+    // Where cells are read from instead of board, so boards too big for a boolean[][] can be shown
+    public interface CellSource {
+        boolean isAlive(int row, int col);
+    }
+    public CellSource cells;  // null to read board
+
+    // Grid lines are only drawn when cells are at least this many pixels wide, otherwise they'd cover the board
+    public static final int MIN_LINE_SPACING = 4;
+    // When a pixel covers more cells than this per side, only this many per side are looked at to shade it
+    public static final int LOD_SAMPLES = 4;
+    public static final int MAX_CELL_PIXELS = 64;  // How far in you can zoom
+    public Color aliveColor = StdDraw.GRAY;
+    public Color deadColor = Driver.BACKGROUND_COLOR;
+
+    // The view: zoom is how many times bigger than the whole board fitting the box cells are drawn, and
+    // (viewRow, viewCol) is the top left cell shown
+    private double zoom = 1;
+    private int viewRow;
+    private int viewCol;
+
+    // The board is drawn by writing cell colors straight into the pixels of this image and copying it onto
+    // the canvas once, instead of a filledRectangle() per cell and a line() per grid line
+    private BufferedImage image;
+    private int[] pixels;  // The image's own pixel array
+    private final Axis across = new Axis();  // Columns of the view along the image's width
+    private final Axis down = new Axis();    // Rows of the view along its height
+    private int lineRGB, aliveRGB, deadRGB;  // Colors the image was drawn with
+    private int[] shades;  // Colors for pixels that are partly ALIVE, by the share of samples that are alive
+
+    // Color of every tile (one cell, or one pixel of many cells when zoomed out) the image shows, so a frame
+    // only repaints the tiles that changed since the last one
+    private int[] shown;
+    private int dirtyX0, dirtyY0, dirtyX1, dirtyY1;  // Pixels repainted by the last update, [x0, x1) by [y0, y1)
+
     public Board(int x, int y, int halfWidth, int halfHeight, int rows, int cols, boolean filled, boolean[][] board) {
         super(x, y, halfWidth, halfHeight, filled);
         this.rows = rows;
@@ -25,68 +62,342 @@ public class Board extends Rectangle {
         calculateBounds();
     }
 
+    // incX and incY are the size of a cell at the current zoom, lowerX/upperX the centers of the first and last
+    // column in view and upperY/lowerY of the first and last row
     public void calculateBounds() {
-        incX = (double)2 * halfWidth / cols;
-        incY = (double)2 * halfHeight / rows;
+        incX = (double)2 * halfWidth * zoom / cols;
+        incY = (double)2 * halfHeight * zoom / rows;
         lowerX = x - halfWidth + incX / 2;
-        upperX = x + halfWidth - incX / 2;
-        lowerY = y - halfHeight + incY / 2;
+        upperX = lowerX + (visibleCols() - 1) * incX;
         upperY = y + halfHeight - incY / 2;
+        lowerY = upperY - (visibleRows() - 1) * incY;
     }
 
-    public double[] getCellCM(double pX, double pY) {
-        double curCol = lowerX - incX/2;
-        while (curCol < pX) {
-            curCol += incX;
-        }
-        
-        double curRow = upperY + incY/2;
-        while (curRow > pY) {
-            curRow -= incY;
+    // Row and column of the cell shown at (pX, pY), or null if that's not on the board. Works out the cell
+    // straight from the view the same way the image maps pixels to cells, so it costs the same on any board
+    public int[] cellAt(double pX, double pY) {
+        double dX = pX - (x - halfWidth);
+        double dY = (y + halfHeight) - pY;
+        if (dX < 0 || dX >= 2 * halfWidth || dY < 0 || dY >= 2 * halfHeight) {
+            return null;
         }
+        // The last cell in view can be cut off by the edge, so clamp in case rounding lands past it
+        int row = Math.min(viewRow + visibleRows() - 1, viewRow + (int)(dY / incY));
+        int col = Math.min(viewCol + visibleCols() - 1, viewCol + (int)(dX / incX));
+        return new int[] {row, col};
+    }
 
-        return new double[] {curRow + incY/2, curCol - incX/2};
+    // Center {x, y} of a cell on the canvas, off the board if the cell isn't in view
+    public double[] cellCenter(int row, int col) {
+        return new double[] {lowerX + (col - viewCol) * incX, upperY - (row - viewRow) * incY};
     }
 
-    public void fillCell(double pX, double pY, Color c) {
+    // Covers one cell with a color until the board is drawn again, the part of it cut off by the edge of the board
+    // is left out
+    public void fillCell(int row, int col, Color c) {
+        double[] center = cellCenter(row, col);
+        double x0 = Math.max(x - halfWidth, center[0] - incX / 2);
+        double x1 = Math.min(x + halfWidth, center[0] + incX / 2);
+        double y0 = Math.max(y - halfHeight, center[1] - incY / 2);
+        double y1 = Math.min(y + halfHeight, center[1] + incY / 2);
+        if (x0 >= x1 || y0 >= y1) {
+            return;  // Not in view
+        }
         Color prev = StdDraw.getPenColor();
         StdDraw.setPenColor(c);
-        StdDraw.filledRectangle(pX, pY, incX/2, incY/2);
+        StdDraw.filledRectangle((x0 + x1) / 2, (y0 + y1) / 2, (x1 - x0) / 2, (y1 - y0) / 2);
         StdDraw.setPenColor(prev);
-        drawAxes();
+        if (showsLines()) {
+            StdDraw.rectangle((x0 + x1) / 2, (y0 + y1) / 2, (x1 - x0) / 2, (y1 - y0) / 2);  // Only this cell's
+        }                                                                                  // grid lines were covered
+    }
+
+    public double getZoom() {
+        return zoom;
+    }
+
+    public int getViewRow() {
+        return viewRow;
+    }
+
+    public int getViewCol() {
+        return viewCol;
+    }
+
+    // Number of rows and columns the view shows at the current zoom
+    public int visibleRows() {
+        return Math.max(1, (int)Math.ceil(rows / zoom));
     }
 
+    public int visibleCols() {
+        return Math.max(1, (int)Math.ceil(cols / zoom));
+    }
+
+    // Zooms in (factor > 1) or out (factor < 1) keeping the cell in the middle of the view where it is
+    public void zoomBy(double factor) {
+        int maxPixels = Math.max(StdDraw.pixelsX(2 * halfWidth), StdDraw.pixelsY(2 * halfHeight));
+        double maxZoom = Math.max(1, (double)MAX_CELL_PIXELS * Math.max(rows, cols) / maxPixels);
+        double centerRow = viewRow + rows / zoom / 2;
+        double centerCol = viewCol + cols / zoom / 2;
+        zoom = Math.min(maxZoom, Math.max(1, zoom * factor));
+        viewRow = (int)Math.round(centerRow - rows / zoom / 2);
+        viewCol = (int)Math.round(centerCol - cols / zoom / 2);
+        clampView();
+    }
+
+    // Moves the view by the given number of cells, it stops at the edges of the board
+    public void pan(int dRows, int dCols) {
+        viewRow += dRows;
+        viewCol += dCols;
+        clampView();
+    }
+
+    // Shows the whole board again
+    public void resetView() {
+        zoom = 1;
+        viewRow = 0;
+        viewCol = 0;
+        calculateBounds();
+    }
+
+    private void clampView() {
+        viewRow = Math.max(0, Math.min(viewRow, rows - visibleRows()));
+        viewCol = Math.max(0, Math.min(viewCol, cols - visibleCols()));
+        calculateBounds();
+    }
+
+    // Grid lines are drawn when cells are big enough on screen
+    private boolean showsLines() {
+        return StdDraw.pixelsX(2 * halfWidth) * zoom >= MIN_LINE_SPACING * cols
+                && StdDraw.pixelsY(2 * halfHeight) * zoom >= MIN_LINE_SPACING * rows;
+    }
+
+    // Draws the whole board, but only the tiles that changed since the last frame are written into the image
     public void drawGrid() {
-        Color c = StdDraw.getPenColor();
-        StdDraw.setPenColor(StdDraw.GRAY);
+        updateImage();
+        StdDraw.picture(x, y, image);
+    }
+
+    // Same as drawGrid() but only copies the part of the image that changed onto the canvas, for when the
+    // canvas still shows the last frame (so nothing was cleared)
+    public void drawChanges() {
+        if (updateImage()) {
+            StdDraw.picture(x, y, image);  // The view moved, the outline left from the last frame still fits
+        } else {
+            drawDirty();
+        }
+    }
 
-        for (double cellCol = lowerX; cellCol <= upperX + incX/2; cellCol += incX) {  // + incX/2 bc floating point imprecision
-            for (double cellRow = upperY; cellRow >= lowerY - incY/2; cellRow -= incY) {
-                int col = (int)Math.round((cellCol - lowerX) / incX);
-                int row = (int)Math.round((upperY - cellRow) / incY);  // Not upperY - cellRow bc lower row indices have higher y values
+    // Redraws the tile showing one cell after the cell was changed, without looking at the other tiles
+    public void drawCell(int row, int col) {
+        if (!imageMatches()) {
+            drawChanges();
+            return;
+        }
+        int i = down.tileOf(row);
+        int j = across.tileOf(col);
+        if (i < 0 || j < 0)
+            return;  // Not in view
+        resetDirty();
+        paintTile(source(), i, j);
+        drawDirty();
+    }
 
-                if (board[row][col]) {
-                    StdDraw.filledRectangle(cellCol, cellRow, incX/2, incY/2);
+    private void drawDirty() {
+        if (dirtyX0 < dirtyX1)
+            StdDraw.picture(x, y, image, dirtyX0, dirtyY0, dirtyX1 - dirtyX0, dirtyY1 - dirtyY0);
+    }
+
+    // Grid lines and the outline keep the color the board was last drawn with, whatever the pen is now
+    private Color lineColor() {
+        return (color != null) ? color : StdDraw.getPenColor();
+    }
+
+    private CellSource source() {
+        if (cells != null)
+            return cells;
+        boolean[][] b = board;
+        return (row, col) -> b[row][col];
+    }
+
+    // Brings the image up to date with the cells in view. If the view, size or colors changed, every pixel is
+    // written (copying pixel rows that show the same tiles as the one above), otherwise only tiles whose color
+    // differs from shown are repainted, so a frame costs a color per tile plus the pixels that changed.
+    // Returns true if the whole image was rewritten
+    private boolean updateImage() {
+        resetDirty();
+        CellSource source = source();
+        if (imageMatches()) {
+            for (int i = 0; i < down.count; i++)
+                for (int j = 0; j < across.count; j++)
+                    paintTile(source, i, j);
+            return false;
+        }
+
+        int w = StdDraw.pixelsX(2 * halfWidth);
+        int h = StdDraw.pixelsY(2 * halfHeight);
+        if (image == null || image.getWidth() != w || image.getHeight() != h) {
+            image = new BufferedImage(w, h, BufferedImage.TYPE_INT_RGB);
+            pixels = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+        }
+        clampView();
+        boolean lines = showsLines();
+        across.map(w, cols, viewCol, zoom, lines);
+        down.map(h, rows, viewRow, zoom, lines);
+        lineRGB = lineColor().getRGB();
+        aliveRGB = aliveColor.getRGB();
+        deadRGB = deadColor.getRGB();
+        shades = new int[LOD_SAMPLES * LOD_SAMPLES + 1];
+        for (int k = 0; k < shades.length; k++)
+            shades[k] = blend(deadColor, aliveColor, (double)k / (shades.length - 1));
+
+        shown = new int[down.count * across.count];
+        int[] rowColors = new int[across.count];
+        for (int py = 0; py < h; py++) {
+            int offset = py * w;
+            int i = down.tile[py];
+            if (i < 0) {
+                Arrays.fill(pixels, offset, offset + w, lineRGB);
+            } else if (py > 0 && down.tile[py - 1] == i) {
+                System.arraycopy(pixels, offset - w, pixels, offset, w);
+            } else {
+                for (int j = 0; j < across.count; j++) {
+                    rowColors[j] = color(source, i, j);
+                    shown[i * across.count + j] = rowColors[j];
+                }
+                for (int px = 0; px < w; px++) {
+                    int j = across.tile[px];
+                    pixels[offset + px] = (j < 0) ? lineRGB : rowColors[j];
                 }
             }
         }
-        StdDraw.setPenColor(c);
+        dirtyX0 = dirtyY0 = 0;
+        dirtyX1 = w;
+        dirtyY1 = h;
+        return true;
     }
 
-    public void drawAxes() {
-        for (double horz = lowerX - incX/2; horz <= upperX + incX/2; horz += incX) {
-            StdDraw.line(horz, lowerY - incY/2, horz, upperY + incY/2);
+    // True if the image was drawn for this view of a board of this size with these colors, so only tiles that
+    // changed need painting
+    private boolean imageMatches() {
+        return shown != null && across.cells == cols && down.cells == rows && across.view == viewCol
+                && down.view == viewRow && across.zoom == zoom && (cells != null || (board.length == rows
+                && board[0].length == cols)) && image.getWidth() == StdDraw.pixelsX(2 * halfWidth)
+                && image.getHeight() == StdDraw.pixelsY(2 * halfHeight) && lineRGB == lineColor().getRGB()
+                && aliveRGB == aliveColor.getRGB() && deadRGB == deadColor.getRGB();
+    }
+
+    // Colors tile (i, j) again if its cells changed, leaving its grid lines alone, and grows the dirty rectangle
+    private void paintTile(CellSource source, int i, int j) {
+        int color = color(source, i, j);
+        int index = i * across.count + j;
+        if (shown[index] == color)
+            return;
+        shown[index] = color;
+        int w = across.tile.length;
+        int x0 = across.first[j], x1 = across.first[j + 1];
+        int y0 = down.first[i], y1 = down.first[i + 1];
+        for (int py = y0; py < y1; py++) {
+            if (down.tile[py] < 0)
+                continue;
+            for (int px = x0; px < x1; px++)
+                if (across.tile[px] >= 0)
+                    pixels[py * w + px] = color;
+        }
+        dirtyX0 = Math.min(dirtyX0, x0);
+        dirtyY0 = Math.min(dirtyY0, y0);
+        dirtyX1 = Math.max(dirtyX1, x1);
+        dirtyY1 = Math.max(dirtyY1, y1);
+    }
+
+    // A tile of one cell is ALIVE or DEAD, a tile of many is shaded by how many of up to LOD_SAMPLES by
+    // LOD_SAMPLES cells spread evenly over it are alive, so a frame costs the same at any board size
+    private int color(CellSource source, int i, int j) {
+        int r0 = down.cell[i], rowSpan = down.cell[i + 1] - r0;
+        int c0 = across.cell[j], colSpan = across.cell[j + 1] - c0;
+        if (rowSpan == 1 && colSpan == 1)
+            return source.isAlive(r0, c0) ? aliveRGB : deadRGB;
+        int sr = Math.min(rowSpan, LOD_SAMPLES);
+        int sc = Math.min(colSpan, LOD_SAMPLES);
+        int alive = 0;
+        for (int a = 0; a < sr; a++) {
+            int row = r0 + (int)((2L * a + 1) * rowSpan / (2 * sr));
+            for (int b = 0; b < sc; b++)
+                if (source.isAlive(row, c0 + (int)((2L * b + 1) * colSpan / (2 * sc))))
+                    alive++;
+        }
+        return shades[alive * (shades.length - 1) / (sr * sc)];
+    }
+
+    private void resetDirty() {
+        dirtyX0 = dirtyY0 = Integer.MAX_VALUE;
+        dirtyX1 = dirtyY1 = Integer.MIN_VALUE;
+    }
+
+    private static int blend(Color from, Color to, double t) {
+        int r = (int)Math.round(from.getRed() + t * (to.getRed() - from.getRed()));
+        int g = (int)Math.round(from.getGreen() + t * (to.getGreen() - from.getGreen()));
+        int b = (int)Math.round(from.getBlue() + t * (to.getBlue() - from.getBlue()));
+        return new Color(r, g, b).getRGB();
+    }
+
+    /**
+     * How the pixels along one side of the image map to the cells in view. Pixels showing the same cells form a
+     * tile: a cell drawn as several pixels when zoomed in, or a pixel standing for several cells when zoomed out.
+     */
+    private static class Axis {
+        int[] tile = new int[0];   // Tile each pixel shows, -1 for grid lines
+        int[] first = new int[1];  // first[t] is the first pixel of tile t, first[count] the end of the image
+        int[] cell = new int[1];   // cell[t] is the first cell of tile t, cell[count] the end of the view
+        int count;
+        int cells;                 // What the mapping was made for
+        int view;
+        double zoom;
+
+        void map(int pixels, int cells, int view, double zoom, boolean lines) {
+            this.cells = cells;
+            this.view = view;
+            this.zoom = zoom;
+            if (tile.length != pixels) {
+                tile = new int[pixels];
+                first = new int[pixels + 1];
+                cell = new int[pixels + 1];
+            }
+            double cellsPerPixel = cells / (pixels * zoom);
+            int end = Math.min(cells, view + (int)Math.ceil(cells / zoom));
+            count = 0;
+            int prev = -1;
+            for (int p = 0; p < pixels; p++) {
+                int c = Math.min(end - 1, view + (int)(p * cellsPerPixel));
+                if (c != prev) {
+                    first[count] = p;
+                    cell[count] = c;
+                    count++;
+                    prev = c;
+                }
+                tile[p] = count - 1;
+            }
+            first[count] = pixels;
+            cell[count] = end;
+            if (lines) {
+                for (int t = 0; t < count; t++)
+                    tile[first[t]] = -1;
+                tile[pixels - 1] = -1;
+            }
         }
 
-        for (double vert = lowerY - incY/2; vert <= upperY + incY; vert += incY) {
-            StdDraw.line(lowerX - incX/2, vert, upperX + incX/2, vert);
+        // Tile showing the given cell, -1 if it's out of view
+        int tileOf(int c) {
+            if (c < cell[0] || c >= cell[count])
+                return -1;
+            int t = Arrays.binarySearch(cell, 0, count, c);
+            return (t >= 0) ? t : -t - 2;
         }
     }
 
     public void draw() {
         calculateBounds();
-        drawGrid();
-        super.draw();
-        drawAxes();
+        super.draw();  // Outline first, so the image covers its inner half and redrawing part of the image can't
+        drawGrid();    // leave pieces of it behind
     }
 }
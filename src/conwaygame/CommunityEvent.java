@@ -0,0 +1,52 @@
+package conwaygame;
+/*
+ * Something that happened to the communities between two generations, as reported by
+ * CommunityTracker. Communities are named by the ids the tracker gives them.
+ */
+import java.util.Arrays;
+
+public class CommunityEvent {
+
+    public enum Type {
+        BIRTH, // A community appeared without any cells of an earlier one: from is empty
+        DEATH, // Every cell of a community died: to is empty
+        MERGE, // Several communities joined into one
+        SPLIT; // A community broke into several
+    }
+
+    private final Type type;
+    private final int[] from;
+    private final int[] to;
+
+    public CommunityEvent(Type type, int[] from, int[] to) {
+        this.type = type;
+        this.from = from;
+        this.to = to;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    /**
+     * Returns the ids of the communities of the previous generation
+     *
+     * @return int[] of ids, empty for a BIRTH
+     */
+    public int[] getFrom() {
+        return from.clone();
+    }
+
+    /**
+     * Returns the ids of the communities of the current generation
+     *
+     * @return int[] of ids, empty for a DEATH
+     */
+    public int[] getTo() {
+        return to.clone();
+    }
+
+    public String toString() {
+        return type + " " + Arrays.toString(from) + " -> " + Arrays.toString(to);
+    }
+}
@@ -0,0 +1,257 @@
+package conwaygame;
+/*
+ * Sizes, bounding boxes and centroids of every community of a grid, found in one flood
+ * fill. The fill walks each community with unwrapped coordinates: stepping off an edge
+ * keeps counting past it instead of wrapping, so a community crossing the seam gets one
+ * contiguous box and a centroid that is not pulled to the middle of the board.
+ *
+ * Communities are numbered in the order their first cell appears going row by row. A box
+ * starts at (getTop, getLeft) on the board and may wrap around past the last row or column.
+ *
+ * A community that reaches all the way around the board, such as a ring around the torus,
+ * has no unwrapped position of its own: where the fill started would decide it. Along
+ * such a direction the box is the whole board starting at 0, and the centroid is the
+ * plain average of the cells' positions on the board.
+ */
+import java.util.Arrays;
+
+public class CommunityStats {
+
+    private final int rows;
+    private final int cols;
+    private final int[] labels; // Community of every cell, -1 for DEAD cells, row-major
+    private int count;
+
+    private int[] size;
+    private int[] top;
+    private int[] left;
+    private int[] height;
+    private int[] width;
+    private double[] centroidRow;
+    private double[] centroidCol;
+    private int[] histogram; // histogram[k] is the number of communities of size 2^k to 2^(k+1) - 1
+
+    /**
+     * Labels every community of a grid and collects its statistics
+     *
+     * @param grid grid to label, true denotes an ALIVE cell
+     */
+    public CommunityStats(boolean[][] grid) {
+        rows = grid.length;
+        cols = grid[0].length;
+        labels = new int[rows * cols];
+        Arrays.fill(labels, -1);
+
+        int capacity = 16;
+        size = new int[capacity];
+        top = new int[capacity];
+        left = new int[capacity];
+        height = new int[capacity];
+        width = new int[capacity];
+        centroidRow = new double[capacity];
+        centroidCol = new double[capacity];
+
+        // The queue never holds more than one community, it is reused for each of them
+        int[] queueRow = new int[16]; // Unwrapped row of every queued cell
+        int[] queueCol = new int[16]; // Unwrapped column of every queued cell
+
+        for (int row = 0; row < rows; row++) {
+            for (int col = 0; col < cols; col++) {
+                if (!grid[row][col] || labels[row * cols + col] != -1)
+                    continue;
+                if (count == capacity) {
+                    capacity *= 2;
+                    grow(capacity);
+                }
+
+                int id = count++;
+                labels[row * cols + col] = id;
+                queueRow[0] = row;
+                queueCol[0] = col;
+                int head = 0, tail = 1;
+                int minRow = row, maxRow = row, minCol = col, maxCol = col;
+                long sumRow = 0, sumCol = 0;
+                long boardSumRow = 0, boardSumCol = 0; // The same, with the cells' positions on the board
+
+                while (head < tail) {
+                    int r = queueRow[head], c = queueCol[head];
+                    head++;
+                    sumRow += r;
+                    sumCol += c;
+                    boardSumRow += Math.floorMod(r, rows);
+                    boardSumCol += Math.floorMod(c, cols);
+                    minRow = Math.min(minRow, r);
+                    maxRow = Math.max(maxRow, r);
+                    minCol = Math.min(minCol, c);
+                    maxCol = Math.max(maxCol, c);
+
+                    for (int dr = -1; dr <= 1; dr++) {
+                        int nr = Math.floorMod(r + dr, rows);
+                        for (int dc = -1; dc <= 1; dc++) {
+                            int nc = Math.floorMod(c + dc, cols);
+                            if (!grid[nr][nc] || labels[nr * cols + nc] != -1)
+                                continue;
+                            labels[nr * cols + nc] = id;
+                            if (tail == queueRow.length) {
+                                queueRow = Arrays.copyOf(queueRow, tail * 2);
+                                queueCol = Arrays.copyOf(queueCol, tail * 2);
+                            }
+                            queueRow[tail] = r + dr;
+                            queueCol[tail] = c + dc;
+                            tail++;
+                        }
+                    }
+                }
+
+                size[id] = tail;
+                if (maxRow - minRow + 1 >= rows) { // All the way around
+                    top[id] = 0;
+                    height[id] = rows;
+                    centroidRow[id] = (double) boardSumRow / tail;
+                } else {
+                    top[id] = Math.floorMod(minRow, rows);
+                    height[id] = maxRow - minRow + 1;
+                    centroidRow[id] = wrap((double) sumRow / tail, rows);
+                }
+                if (maxCol - minCol + 1 >= cols) {
+                    left[id] = 0;
+                    width[id] = cols;
+                    centroidCol[id] = (double) boardSumCol / tail;
+                } else {
+                    left[id] = Math.floorMod(minCol, cols);
+                    width[id] = maxCol - minCol + 1;
+                    centroidCol[id] = wrap((double) sumCol / tail, cols);
+                }
+            }
+        }
+        grow(count);
+
+        int largest = 0;
+        for (int i = 0; i < count; i++)
+            largest = Math.max(largest, size[i]);
+        histogram = new int[32 - Integer.numberOfLeadingZeros(largest)];
+        for (int i = 0; i < count; i++)
+            histogram[31 - Integer.numberOfLeadingZeros(size[i])]++;
+    }
+
+    /**
+     * Returns the number of communities, the same as GameOfLife.numOfCommunities()
+     *
+     * @return int for communities
+     */
+    public int getCount() {
+        return count;
+    }
+
+    /**
+     * Returns the community a cell belongs to
+     *
+     * @param row row position of the cell
+     * @param col column position of the cell
+     * @return number of the community, -1 if the cell is DEAD
+     */
+    public int getLabel(int row, int col) {
+        return labels[row * cols + col];
+    }
+
+    /**
+     * Returns the number of cells of a community
+     *
+     * @param id number of the community
+     * @return int for alive cells in the community
+     */
+    public int getSize(int id) {
+        return size[id];
+    }
+
+    /**
+     * Returns the first row of the bounding box of a community
+     *
+     * @param id number of the community
+     * @return row the box starts at, the box may wrap past the last row; 0 if the
+     *         community reaches all the way around from top to bottom
+     */
+    public int getTop(int id) {
+        return top[id];
+    }
+
+    /**
+     * Returns the first column of the bounding box of a community
+     *
+     * @param id number of the community
+     * @return column the box starts at, the box may wrap past the last column; 0 if
+     *         the community reaches all the way around from left to right
+     */
+    public int getLeft(int id) {
+        return left[id];
+    }
+
+    /**
+     * Returns the number of rows the bounding box of a community covers
+     *
+     * @param id number of the community
+     * @return int for rows, at most the number of rows of the board
+     */
+    public int getHeight(int id) {
+        return height[id];
+    }
+
+    /**
+     * Returns the number of columns the bounding box of a community covers
+     *
+     * @param id number of the community
+     * @return int for columns, at most the number of columns of the board
+     */
+    public int getWidth(int id) {
+        return width[id];
+    }
+
+    /**
+     * Returns the row of the centroid of a community
+     *
+     * @param id number of the community
+     * @return average row of its cells, in [0, rows); for a community that reaches all
+     *         the way around from top to bottom, the average of the rows the cells are on
+     */
+    public double getCentroidRow(int id) {
+        return centroidRow[id];
+    }
+
+    /**
+     * Returns the column of the centroid of a community
+     *
+     * @param id number of the community
+     * @return average column of its cells, in [0, cols); for a community that reaches
+     *         all the way around from left to right, the average of the columns the
+     *         cells are on
+     */
+    public double getCentroidCol(int id) {
+        return centroidCol[id];
+    }
+
+    /**
+     * Returns the sizes of the communities as a histogram with power of two buckets
+     *
+     * @return int[] where element k is the number of communities of 2^k to 2^(k+1) - 1
+     *         cells, empty if there are no communities
+     */
+    public int[] getSizeHistogram() {
+        return histogram.clone();
+    }
+
+    private void grow(int capacity) {
+        size = Arrays.copyOf(size, capacity);
+        top = Arrays.copyOf(top, capacity);
+        left = Arrays.copyOf(left, capacity);
+        height = Arrays.copyOf(height, capacity);
+        width = Arrays.copyOf(width, capacity);
+        centroidRow = Arrays.copyOf(centroidRow, capacity);
+        centroidCol = Arrays.copyOf(centroidCol, capacity);
+    }
+
+    // Brings an unwrapped coordinate back onto the board
+    private static double wrap(double value, int length) {
+        double wrapped = value % length;
+        return (wrapped < 0) ? wrapped + length : wrapped;
+    }
+}
@@ -0,0 +1,408 @@
+package conwaygame;
+/*
+ * Keeps the communities of a board labeled from one generation to the next without
+ * labeling the whole board again. A community can only change if one of its cells died
+ * or a cell was born next to it, so only the alive cells around changed cells are flood
+ * filled again; every other community keeps its cells and its id.
+ *
+ * Finding the changed cells means comparing the whole grid with the tracked copy, unless
+ * the next generation comes from a TiledGrid: then only the tiles it changed since the
+ * last update are compared, so a board with little going on costs little to update.
+ *
+ * Ids stay the same for as long as a community only grows or shrinks. When communities
+ * are born, die, merge or split they get new ids and the change is reported as a
+ * CommunityEvent. Ids of communities that are gone are handed out again later.
+ */
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class CommunityTracker {
+
+    private final int rows;
+    private final int cols;
+    private final boolean[][] grid; // Copy of the generation the labels are for
+    private final int[] labels; // Community id of every cell, -1 for DEAD cells, row-major
+    private final int[] visited; // Stamp of the last update that flood filled a cell
+    private int stamp;
+
+    private int[] size = new int[16]; // Cells of every community id in use
+    private int[] freeIds = new int[16]; // Ids of communities that are gone, reused first
+    private int freeCount;
+    private int nextId; // Lowest id never handed out
+    private int count;
+    private boolean debug;
+    private TiledGrid source; // Board the last update came from, null if it was a boolean[][]
+    private long sourceVersion; // Version of source the labels are for
+    private long[] sourceWords; // grid packed like source's words, to compare them a word at a time
+
+    // Scratch space of update(), kept between calls
+    private int[] changed = new int[16]; // Cells that were born or died
+    private int[] cells = new int[16]; // Cells of every new component, one after the other
+    private int[] componentStart = new int[16]; // Components k are cells[componentStart[k]] to cells[componentStart[k + 1] - 1]
+    private int[] componentOlds = new int[16]; // Distinct old ids of every component, laid out like cells
+    private int[] oldsStart = new int[16];
+    private int[] seenBy = new int[16]; // Last component an old id was seen in, indexed by id
+    private int[] newsOf = new int[16]; // Number of components an old id ended up in, indexed by id
+    private boolean[] affected = new boolean[16]; // Old ids that have to be checked, indexed by id
+    private int[] affectedIds = new int[16];
+    private int[] splitIds = new int[16]; // New ids of every community that split, one after the other
+
+    /**
+     * Labels every community of the first generation
+     *
+     * @param grid grid to track, true denotes an ALIVE cell
+     */
+    public CommunityTracker(boolean[][] grid) {
+        rows = grid.length;
+        cols = grid[0].length;
+        this.grid = new boolean[rows][];
+        for (int i = 0; i < rows; i++)
+            this.grid[i] = grid[i].clone();
+        labels = new int[rows * cols];
+        visited = new int[rows * cols];
+
+        CommunityStats stats = new CommunityStats(grid);
+        for (int i = 0; i < rows; i++)
+            for (int j = 0; j < cols; j++)
+                labels[i * cols + j] = stats.getLabel(i, j);
+        count = stats.getCount();
+        nextId = count;
+        ensureIds(nextId);
+        for (int id = 0; id < count; id++)
+            size[id] = stats.getSize(id);
+    }
+
+    /**
+     * Checks every update against labeling the whole board again when set, which is slow
+     *
+     * @param debug true to verify every update
+     */
+    public void setDebug(boolean debug) {
+        this.debug = debug;
+    }
+
+    /**
+     * Returns the number of communities, the same as GameOfLife.numOfCommunities()
+     *
+     * @return int for communities
+     */
+    public int getCount() {
+        return count;
+    }
+
+    /**
+     * Returns the community a cell belongs to
+     *
+     * @param row row position of the cell
+     * @param col column position of the cell
+     * @return id of the community, -1 if the cell is DEAD
+     */
+    public int getLabel(int row, int col) {
+        return labels[row * cols + col];
+    }
+
+    /**
+     * Returns the number of cells of a community
+     *
+     * @param id id of a community that currently exists
+     * @return int for alive cells in the community
+     */
+    public int getSize(int id) {
+        return size[id];
+    }
+
+    /**
+     * Moves the labels on to the next generation
+     *
+     * @param next the grid of the next generation, the same size as the first one
+     * @return what happened to the communities, empty if no community changed
+     */
+    public List<CommunityEvent> update(boolean[][] next) {
+        source = null;
+        sourceWords = null;
+        return relabel(findChanges(next));
+    }
+
+    /**
+     * Moves the labels on to the current generation of a tiled board. Only the tiles
+     * that changed since the last update from the same board are compared, the first
+     * update from a board compares all of them.
+     *
+     * @param next tiled board the tracked grid became, the same size as the first grid
+     * @return what happened to the communities, empty if no community changed
+     */
+    public List<CommunityEvent> update(TiledGrid next) {
+        if (next.getRows() != rows || next.getCols() != cols)
+            throw new IllegalArgumentException("Grid must be " + rows + " by " + cols);
+        int tileRows = (rows + TiledGrid.TILE_SIZE - 1) / TiledGrid.TILE_SIZE;
+        int tileCols = (cols + 63) / 64; // A tile is one word wide
+        long since = sourceVersion;
+        if (next != source) {
+            since = -1;
+            sourceWords = new long[rows * tileCols];
+            for (int i = 0; i < rows; i++)
+                for (int j = 0; j < cols; j++)
+                    if (grid[i][j])
+                        sourceWords[i * tileCols + (j >>> 6)] |= 1L << j;
+        }
+
+        int changedCount = 0;
+        for (int tr = 0; tr < tileRows; tr++) {
+            for (int tc = 0; tc < tileCols; tc++) {
+                if (!next.changedSince(tr, tc, since))
+                    continue;
+                int lastRow = Math.min(rows, (tr + 1) * TiledGrid.TILE_SIZE);
+                for (int i = tr * TiledGrid.TILE_SIZE; i < lastRow; i++) {
+                    int k = i * tileCols + tc;
+                    long word = next.getWord(i, tc);
+                    long diff = word ^ sourceWords[k];
+                    sourceWords[k] = word;
+                    for (; diff != 0; diff &= diff - 1) {
+                        changed = grow(changed, changedCount + 1);
+                        changed[changedCount++] = i * cols + tc * 64 + Long.numberOfTrailingZeros(diff);
+                    }
+                }
+            }
+        }
+        source = next;
+        sourceVersion = next.getVersion();
+        Arrays.sort(changed, 0, changedCount); // Row by row like findChanges(), so ids come out the same
+        return relabel(changedCount);
+    }
+
+    /**
+     * Relabels around the cells listed in changed, each of which flips between DEAD
+     * and ALIVE
+     */
+    private List<CommunityEvent> relabel(int changedCount) {
+        List<CommunityEvent> events = new ArrayList<>();
+        if (changedCount == 0)
+            return events;
+        stamp++;
+
+        // Every community with a cell in or next to a change is affected
+        int affectedCount = 0;
+        for (int n = 0; n < changedCount; n++) {
+            int row = changed[n] / cols, col = changed[n] % cols;
+            for (int dr = -1; dr <= 1; dr++) {
+                int r = wrap(row + dr, rows);
+                for (int dc = -1; dc <= 1; dc++) {
+                    int id = labels[r * cols + wrap(col + dc, cols)];
+                    if (id != -1 && !affected[id]) {
+                        affected[id] = true;
+                        affectedIds = grow(affectedIds, affectedCount + 1);
+                        affectedIds[affectedCount++] = id;
+                    }
+                }
+            }
+        }
+
+        // From here on grid holds the new generation, the labels of dead cells are dropped
+        for (int n = 0; n < changedCount; n++) {
+            int cell = changed[n];
+            int row = cell / cols, col = cell % cols;
+            grid[row][col] = !grid[row][col];
+            if (!grid[row][col])
+                labels[cell] = -1;
+        }
+
+        // Flood fill the alive cells around the changes, every component found is one of
+        // the new communities and collects the old ids its cells had
+        int components = 0;
+        int cellCount = 0;
+        int oldsCount = 0;
+        for (int n = 0; n < changedCount; n++) {
+            int row = changed[n] / cols, col = changed[n] % cols;
+            for (int dr = -1; dr <= 1; dr++) {
+                int r = wrap(row + dr, rows);
+                for (int dc = -1; dc <= 1; dc++) {
+                    int c = wrap(col + dc, cols);
+                    int seed = r * cols + c;
+                    if (!grid[r][c] || visited[seed] == stamp)
+                        continue;
+
+                    componentStart = grow(componentStart, components + 2);
+                    oldsStart = grow(oldsStart, components + 2);
+                    componentStart[components] = cellCount;
+                    oldsStart[components] = oldsCount;
+                    visited[seed] = stamp;
+                    cells = grow(cells, cellCount + 1);
+                    cells[cellCount++] = seed;
+
+                    // cells doubles as the queue of the fill
+                    for (int head = componentStart[components]; head < cellCount; head++) {
+                        int cell = cells[head];
+                        int old = labels[cell];
+                        if (old != -1 && seenBy[old] != components + 1) {
+                            seenBy[old] = components + 1;
+                            newsOf[old]++;
+                            componentOlds = grow(componentOlds, oldsCount + 1);
+                            componentOlds[oldsCount++] = old;
+                        }
+                        int cr = cell / cols, cc = cell % cols;
+                        for (int er = -1; er <= 1; er++) {
+                            int nr = wrap(cr + er, rows);
+                            for (int ec = -1; ec <= 1; ec++) {
+                                int nc = wrap(cc + ec, cols);
+                                int neighbor = nr * cols + nc;
+                                if (!grid[nr][nc] || visited[neighbor] == stamp)
+                                    continue;
+                                visited[neighbor] = stamp;
+                                cells = grow(cells, cellCount + 1);
+                                cells[cellCount++] = neighbor;
+                            }
+                        }
+                    }
+                    components++;
+                }
+            }
+        }
+        componentStart[components] = cellCount;
+        oldsStart[components] = oldsCount;
+
+        // A component keeps the id of its only old community if nothing else became of
+        // that community, every other component gets a fresh id. Ids of communities that
+        // are gone are only released afterwards so no id means two things in one event.
+        int[] ids = new int[components];
+        for (int k = 0; k < components; k++) {
+            int from = oldsStart[k], to = oldsStart[k + 1];
+            if (to - from == 1 && newsOf[componentOlds[from]] == 1) {
+                ids[k] = componentOlds[from];
+                affected[ids[k]] = false; // Kept, so not released below
+            } else {
+                ids[k] = takeId();
+                if (to == from)
+                    events.add(new CommunityEvent(CommunityEvent.Type.BIRTH, new int[0], new int[] { ids[k] }));
+                else if (to - from > 1)
+                    events.add(new CommunityEvent(CommunityEvent.Type.MERGE,
+                            Arrays.copyOfRange(componentOlds, from, to), new int[] { ids[k] }));
+            }
+            size[ids[k]] = componentStart[k + 1] - componentStart[k];
+            for (int i = componentStart[k]; i < componentStart[k + 1]; i++)
+                labels[cells[i]] = ids[k];
+        }
+
+        // Lay the new ids of every community that split out one after the other, seenBy
+        // is free again and becomes the position the next id of a community goes to
+        int splitCount = 0;
+        for (int a = 0; a < affectedCount; a++) {
+            int old = affectedIds[a];
+            if (newsOf[old] > 1) {
+                seenBy[old] = splitCount;
+                splitCount += newsOf[old];
+            }
+        }
+        splitIds = grow(splitIds, splitCount);
+        for (int k = 0; k < components; k++)
+            for (int i = oldsStart[k]; i < oldsStart[k + 1]; i++)
+                if (newsOf[componentOlds[i]] > 1)
+                    splitIds[seenBy[componentOlds[i]]++] = ids[k];
+
+        for (int a = 0; a < affectedCount; a++) {
+            int old = affectedIds[a];
+            if (newsOf[old] == 0)
+                events.add(new CommunityEvent(CommunityEvent.Type.DEATH, new int[] { old }, new int[0]));
+            else if (newsOf[old] > 1)
+                events.add(new CommunityEvent(CommunityEvent.Type.SPLIT, new int[] { old },
+                        Arrays.copyOfRange(splitIds, seenBy[old] - newsOf[old], seenBy[old])));
+        }
+        for (int a = 0; a < affectedCount; a++) {
+            int old = affectedIds[a];
+            if (affected[old])
+                releaseId(old);
+            affected[old] = false;
+            newsOf[old] = 0;
+            seenBy[old] = 0;
+        }
+        count += components - affectedCount;
+
+        if (debug)
+            verify();
+        return events;
+    }
+
+    /**
+     * Collects the cells that differ between the tracked grid and the next one
+     *
+     * @return number of changed cells
+     */
+    private int findChanges(boolean[][] next) {
+        if (next.length != rows || next[0].length != cols)
+            throw new IllegalArgumentException("Grid must be " + rows + " by " + cols);
+        int changedCount = 0;
+        for (int i = 0; i < rows; i++) {
+            if (Arrays.equals(grid[i], next[i]))
+                continue;
+            for (int j = 0; j < cols; j++) {
+                if (grid[i][j] != next[i][j]) {
+                    changed = grow(changed, changedCount + 1);
+                    changed[changedCount++] = i * cols + j;
+                }
+            }
+        }
+        return changedCount;
+    }
+
+    private int takeId() {
+        if (freeCount > 0)
+            return freeIds[--freeCount];
+        ensureIds(nextId + 1);
+        return nextId++;
+    }
+
+    private void releaseId(int id) {
+        size[id] = 0;
+        freeIds = grow(freeIds, freeCount + 1);
+        freeIds[freeCount++] = id;
+    }
+
+    // Makes room for ids [0, n) in every array indexed by id
+    private void ensureIds(int n) {
+        size = grow(size, n);
+        seenBy = grow(seenBy, n);
+        newsOf = grow(newsOf, n);
+        if (affected.length < n)
+            affected = Arrays.copyOf(affected, Math.max(n, affected.length * 2));
+    }
+
+    // Wraps a position at most one step off the board back onto it
+    private static int wrap(int value, int length) {
+        if (value < 0)
+            return value + length;
+        return (value >= length) ? value - length : value;
+    }
+
+    private static int[] grow(int[] array, int n) {
+        return (array.length >= n) ? array : Arrays.copyOf(array, Math.max(n, array.length * 2));
+    }
+
+    /**
+     * Labels the whole board again and checks it has the same communities
+     */
+    private void verify() {
+        CommunityStats stats = new CommunityStats(grid);
+        if (stats.getCount() != count)
+            throw new IllegalStateException("Tracked " + count + " communities, there are " + stats.getCount());
+        int[] match = new int[stats.getCount()]; // Tracked id of every community of stats, plus one
+        int[] matchedBy = new int[nextId]; // Community of stats of every tracked id, plus one
+        for (int i = 0; i < rows; i++) {
+            for (int j = 0; j < cols; j++) {
+                int expected = stats.getLabel(i, j), id = labels[i * cols + j];
+                if ((expected == -1) != (id == -1))
+                    throw new IllegalStateException("Cell (" + i + ", " + j + ") is labeled wrong");
+                if (id == -1)
+                    continue;
+                if (match[expected] == 0 && matchedBy[id] == 0) {
+                    match[expected] = id + 1;
+                    matchedBy[id] = expected + 1;
+                }
+                if (match[expected] != id + 1 || matchedBy[id] != expected + 1)
+                    throw new IllegalStateException("Community " + id + " at (" + i + ", " + j + ") is wrong");
+            }
+        }
+        for (int e = 0; e < stats.getCount(); e++)
+            if (size[match[e] - 1] != stats.getSize(e))
+                throw new IllegalStateException("Community " + (match[e] - 1) + " has the wrong size");
+    }
+}
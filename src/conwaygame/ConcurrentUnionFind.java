@@ -0,0 +1,51 @@
+package conwaygame;
+/*
+ * Union-find that many threads can use at once. Parents live in an AtomicIntegerArray and
+ * a root is only ever linked with a compare-and-set, so two threads joining the same roots
+ * cannot both succeed. Roots are always linked under the larger index, which keeps the
+ * trees free of cycles without locking; path halving keeps them shallow.
+ */
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+public class ConcurrentUnionFind {
+
+    private final AtomicIntegerArray parent;
+
+    public ConcurrentUnionFind(int n) {
+        parent = new AtomicIntegerArray(n);
+        for (int i = 0; i < n; i++)
+            parent.set(i, i);
+    }
+
+    public int find(int p) {
+        // Path halving: point every other node on the way up at its grandparent
+        while (true) {
+            int next = parent.get(p);
+            if (next == p)
+                return p;
+            int grandparent = parent.get(next);
+            // Losing this race only means another thread shortened the path first
+            if (grandparent != next)
+                parent.compareAndSet(p, next, grandparent);
+            p = grandparent;
+        }
+    }
+
+    // Returns true if p and q were in different sets before the call
+    public boolean union(int p, int q) {
+        while (true) {
+            int root1 = find(p);
+            int root2 = find(q);
+            if (root1 == root2)
+                return false;
+            if (root1 > root2) {
+                int temp = root1;
+                root1 = root2;
+                root2 = temp;
+            }
+            if (parent.compareAndSet(root1, root1, root2))
+                return true;
+            // root1 was linked by another thread in the meantime, look up the roots again
+        }
+    }
+}
@@ -3,6 +3,7 @@ package conwaygame;
  * Conway's Game of Life Driver
  */
 import java.awt.*;  // For colors
+import java.awt.event.KeyEvent;
 import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
@@ -22,6 +23,12 @@ public class Driver {
     public static final int BOARD_HALFWIDTH = 30;
     public static final int BOARD_HALFHEIGHT = 30;
     public static final int DEAFULT_ROWS_AND_COLS = 10;
+    public static final int PAN_DIVISOR = 32;  // Arrow keys move the view by this fraction of it at a time
+    public static final int PLAY_FPS = 60;  // Frames a second Play draws at, however fast generations are computed
+    public static final int STATS_INTERVAL = 500;  // Milliseconds between updates of the gens/s and FPS shown by Play
+    // Save Grid writes binary snapshots, they're small and keep the generation number. Games opened from
+    // another format that keeps the pattern compact (RLE, macrocell) are saved in that format instead.
+    public static final String SAVE_EXTENSION = GridFormat.SNAPSHOT.getExtension();
 
     // Arrays for name of each button for each page, include OPTIONS which is on all pages
     public static final String[] optionNames = {"Back", "Quit"};
@@ -30,7 +37,7 @@ public class Driver {
     public static final String[] inputNames = {"Open"};
     public static final String[] createNames = {"-", "+", "-", "+", "Save and Create"};
     public static final String[] methodNames = {"Cell State", "Is Alive", "Alive Neighbors",
-                                                  "Next Generation", "Next N Generations", "Communities", "Reset", "Save Grid"};
+                                                  "Next Generation", "Next N Generations", "Communities", "Play", "Reset", "Save Grid"};
     public static final Button[] OPTIONS = {
         new Button(6, 95, 4, 3, "Back", true),
         new Button(16, 95, 4, 3, "Quit", true)
@@ -82,6 +89,7 @@ public class Driver {
     public static Text stepsText = new Text(52, 80, "", "LEFT");
     public static Button methodSubmit = new Button(80, 80, 8, BTN_HALFHEIGHT, "Submit", true);
     public static String methodFilename = "";
+    public static String methodExtension = ".txt"; // Extension of the file methodFilename was opened from
 
     public static void main(String[] args) {
         initializeElements();
@@ -111,18 +119,31 @@ public class Driver {
                 }
 
                 // Check if filling in grid on CREATE page
-                if (current == Page.CREATE && activeBoard.containsMouse()) {
-                    double mX = StdDraw.mouseX();
-                    double mY = StdDraw.mouseY();
-
-                    double[] coords = activeBoard.getCellCM(mX, mY);
-                    int row = (int)Math.round((activeBoard.upperY - coords[0]) / activeBoard.incY);
-                    int col = (int)Math.round((coords[1] - activeBoard.lowerX) / activeBoard.incX);
+                int[] cell = (current == Page.CREATE) ? activeBoard.cellAt(StdDraw.mouseX(), StdDraw.mouseY()) : null;
+                if (cell != null) {
+                    int row = cell[0];
+                    int col = cell[1];
 
                     activeBoard.board[row][col] = !(activeBoard.board[row][col]);
-                    displayPage(Page.CREATE);
+                    activeBoard.drawCell(row, col);  // Nothing else on the page changed
+                    StdDraw.show();
                     StdDraw.pause(DELAY);
                 }
+
+                // Dragging the board on the METHOD page pans it
+                if (current == Page.METHOD && activeBoard.containsMouse()) {
+                    dragBoard(activeBoard);
+                }
+            }
+
+            // Zooming and panning the board on the METHOD page, only the board is redrawn
+            if (current == Page.METHOD) {
+                char keystroke = StdDraw.hasNextKeyTyped() ? StdDraw.nextKeyTyped() : 0;
+                if (moveView(activeBoard, keystroke)) {
+                    activeBoard.drawChanges();
+                    StdDraw.show();
+                    StdDraw.pause(15);
+                }
             }
 
             // Check if typing on CREATE page
@@ -243,8 +264,11 @@ public class Driver {
                 for (int i = 0; i < methods.length; i++) {
                     methods[i].changeColor(StdDraw.RED);
                 }
-                methodBoard.board = game.getGrid();
                 methodBoard.changeColor(StdDraw.WHITE);
+                Font hint = StdDraw.getFont();
+                StdDraw.setFont(new Font("SansSerif", Font.PLAIN, 12));
+                StdDraw.text(50, 10, "+/- zoom, drag or arrows pan, 0 shows all");
+                StdDraw.setFont(hint);
 
                 Font temp = StdDraw.getFont();
                 StdDraw.setFont(new Font("SansSerif", Font.PLAIN, 20));
@@ -332,20 +356,29 @@ public class Driver {
 
             switch (btn.name) {
                 case "Open":
-                    methodFilename = inputFilename.text + ".txt";
-                    File inputFile = new File(methodFilename);
+                    // Typing a known extension (like name.rle or name_saved0.gol) opens that file, otherwise .txt is added
+                    String typed = inputFilename.text;
+                    boolean hasExtension = typed.toLowerCase().endsWith(GridFormat.forFile(typed).getExtension());
+                    int extensionStart = hasExtension ? typed.lastIndexOf('.') : typed.length();
+                    methodFilename = typed.substring(0, extensionStart);
+                    methodExtension = hasExtension ? typed.substring(extensionStart) : ".txt";
+                    File inputFile = new File(methodFilename + methodExtension);
                     if (inputFile.exists()) {
-                        inputError.text = "";
-                        inputFilename.text = "";
-                        game = new GameOfLife(methodFilename);
-                        initializeMethod(game);
-                        displayPage(Page.METHOD);
-                        current = Page.METHOD;
+                        try {
+                            game = new GameOfLife(methodFilename + methodExtension);
+                            inputError.text = "";
+                            inputFilename.text = "";
+                            initializeMethod(game);
+                            displayPage(Page.METHOD);
+                            current = Page.METHOD;
+                        } catch (IOException e) {
+                            inputError.text = e.getMessage();
+                            displayPage(Page.INPUT);
+                        }
                     } else {
                         inputError.text = "The file you input does not exist.";
                         displayPage(Page.INPUT);
                     }
-                    methodFilename = methodFilename.substring(0, methodFilename.lastIndexOf(".txt"));
                     break;
             }
 
@@ -370,6 +403,7 @@ public class Driver {
 
                 case "Save and Create":
                     methodFilename = createFilename.text + ".txt";
+                    methodExtension = ".txt";
                     try {
                         File newInputFile = new File(methodFilename);
                         if (newInputFile.createNewFile()) {
@@ -427,21 +461,18 @@ public class Driver {
                         activeBoard.changeColor(StdDraw.RED);
                         StdDraw.show();
                         
-                        while (true) {
-                            if (StdDraw.isMousePressed() && activeBoard.containsMouse()) {
-                                break;
+                        int[] cell = null;
+                        while (cell == null) {
+                            if (StdDraw.isMousePressed()) {
+                                cell = activeBoard.cellAt(StdDraw.mouseX(), StdDraw.mouseY());
                             }
                         }
-                        
-                        double mX = StdDraw.mouseX();
-                        double mY = StdDraw.mouseY();
-                        double[] coords = activeBoard.getCellCM(mX, mY);
-                        int row = (int)Math.round((activeBoard.upperY - coords[0]) / activeBoard.incY);
-                        int col = (int)Math.round((coords[1] - activeBoard.lowerX) / activeBoard.incX);
+                        int row = cell[0];
+                        int col = cell[1];
                         
                         methodText.text = (game.getCellState(row, col)) ? "The cell is ALIVE." : "The cell is DEAD.";
                         displayPage(Page.METHOD);
-                        activeBoard.fillCell(coords[1], coords[0], StdDraw.RED);
+                        activeBoard.fillCell(row, col, StdDraw.RED);
                         StdDraw.show();
                     }
                     break;
@@ -458,21 +489,18 @@ public class Driver {
                         activeBoard.changeColor(StdDraw.RED);
                         StdDraw.show();
 
-                        while (true) {
-                            if (StdDraw.isMousePressed() && activeBoard.containsMouse()) {
-                                break;
+                        int[] cell = null;
+                        while (cell == null) {
+                            if (StdDraw.isMousePressed()) {
+                                cell = activeBoard.cellAt(StdDraw.mouseX(), StdDraw.mouseY());
                             }
                         }
-
-                        double mX = StdDraw.mouseX();
-                        double mY = StdDraw.mouseY();
-                        double[] coords = activeBoard.getCellCM(mX, mY);
-                        int row = (int)Math.round((activeBoard.upperY - coords[0]) / activeBoard.incY);
-                        int col = (int)Math.round((coords[1] - activeBoard.lowerX) / activeBoard.incX);
+                        int row = cell[0];
+                        int col = cell[1];
 
                         methodText.text = "The cell has " + game.numOfAliveNeighbors(row, col) + " alive neighbors.";
                         displayPage(Page.METHOD);
-                        activeBoard.fillCell(coords[1], coords[0], StdDraw.RED);
+                        activeBoard.fillCell(row, col, StdDraw.RED);
                         StdDraw.show();
                     }
                     break;
@@ -533,11 +561,19 @@ public class Driver {
                     methodText.text = "Number of Communities: " + game.numOfCommunities();
                     displayPage(Page.METHOD);
                     break;
+
+                case "Play":
+                    play(btn);
+                    break;
                 
                 case "Reset":
                     // Students better not make a file named "default.txt" or else it won't go back to it
-                    game = (methodFilename.equals("default")) ? new GameOfLife() : new GameOfLife(methodFilename + ".txt");
-                    initializeMethod(game);
+                    try {
+                        game = (methodFilename.equals("default")) ? new GameOfLife() : new GameOfLife(methodFilename + methodExtension);
+                        initializeMethod(game);
+                    } catch (IOException e) {
+                        methodText.text = e.getMessage();
+                    }
                     displayPage(Page.METHOD);
                     StdDraw.pause(DELAY);
                     break;
@@ -545,30 +581,10 @@ public class Driver {
                 case "Save Grid":
                     try {
                         int version = getNextAvailableNumber(methodFilename);
-                        String savedFilename = methodFilename + "_saved" + version + ".txt";
-                        File newSave = new File(savedFilename);
-                        FileWriter inputWriter = new FileWriter(newSave);
-                        inputWriter.write(Integer.toString(activeBoard.cols) + "\n"); // cols
-                        inputWriter.write(Integer.toString(activeBoard.rows) + "\n"); // then rows
-                        // Calculating manually is better, their methods might have an issue
-                        int aliveCells = 0;
-                        for (boolean[] row : activeBoard.board) {
-                            for (boolean cell : row) {
-                                if (cell) {
-                                    aliveCells++;
-                                }
-                            }
-                        }
-                        inputWriter.write(Integer.toString(aliveCells) + "\n");
-    
-                        for (boolean[] row : activeBoard.board) {
-                            for (boolean cell : row) {
-                                String spacing = (cell) ? "   " : "  ";
-                                inputWriter.write(Boolean.toString(cell) + spacing);
-                            }
-                            inputWriter.write("\n");
-                        }
-                        inputWriter.close();
+                        GridFormat openedFrom = GridFormat.forFile(methodExtension);
+                        String extension = (openedFrom == GridFormat.TEXT) ? SAVE_EXTENSION : openedFrom.getExtension();
+                        String savedFilename = methodFilename + "_saved" + version + extension;
+                        game.save(savedFilename);
                         methodText.text = "Grid saved as " + savedFilename;
                     } catch (IOException e) {
                         methodText.text = "Error occurred in saving state.";
@@ -584,14 +600,136 @@ public class Driver {
     // This method just initializes things in method w/ game object since that can't be done
     // right at the start when it doesn't exist yet, this is just to cut down on code
     public static void initializeMethod(GameOfLife game) {
-        boolean[][] grid = game.getGrid();
-        methodBoard.board = grid;
-        methodBoard.rows = grid.length;
-        methodBoard.cols = grid[0].length;
+        // Cells are read straight from the game, so a huge board is never copied just to be drawn
+        methodBoard.board = null;
+        methodBoard.cells = game::getCellState;
+        methodBoard.rows = game.getRows();
+        methodBoard.cols = game.getCols();
+        methodBoard.resetView();
         methodText.text = "Select an Option";
     }
 
 
+    // Plays the game until the button (showing "Stop" meanwhile) is clicked again or space is pressed. Generations are
+    // computed on their own thread by a Simulation as fast as they can be, while this thread draws the latest one
+    // PLAY_FPS times a second, so the board can still be zoomed and panned and a slow frame never slows the game down
+    public static void play(Button btn) {
+        Simulation simulation = new Simulation(game);
+        Simulation.Frame shown = simulation.take();
+        Simulation.Frame statsFrom = shown;
+        methodBoard.cells = null;  // The game belongs to the simulation now, only its frames are drawn
+        methodBoard.board = shown.getGrid();
+        btn.name = "Stop";
+        methodText.text = "Playing from generation " + shown.getGeneration();
+        displayPage(Page.METHOD);
+        simulation.start();
+
+        long frameNanos = 1000000000L / PLAY_FPS;
+        long nextFrame = System.nanoTime();
+        long statsStart = nextFrame;
+        int frames = 0;
+        boolean wasPressed = true;  // The click on Play is still held down
+        while (simulation.isRunning()) {
+            boolean pressed = StdDraw.isMousePressed();
+            if (pressed && !wasPressed && btn.containsMouse()) {
+                break;
+            }
+            wasPressed = pressed;
+            char keystroke = StdDraw.hasNextKeyTyped() ? StdDraw.nextKeyTyped() : 0;
+            if (keystroke == ' ') {
+                break;
+            }
+
+            boolean moved = moveView(methodBoard, keystroke);
+            Simulation.Frame frame = simulation.take();
+            long now = System.nanoTime();
+            if (now - statsStart >= STATS_INTERVAL * 1000000L) {
+                methodText.text = String.format("%.0f gens/s, %.0f FPS", frame.generationsPerSecond(statsFrom),
+                        frames * 1e9 / (now - statsStart));
+                statsFrom = frame;
+                statsStart = now;
+                frames = 0;
+                methodBoard.board = frame.getGrid();
+                shown = frame;
+                displayPage(Page.METHOD);
+                frames++;
+            } else if (frame != shown || moved) {
+                methodBoard.board = frame.getGrid();
+                shown = frame;
+                methodBoard.drawChanges();
+                StdDraw.show();
+                frames++;
+            }
+
+            // Wait for the next frame, if drawing fell behind start counting again from now instead of catching up
+            nextFrame += frameNanos;
+            long wait = nextFrame - System.nanoTime();
+            if (wait > 0) {
+                StdDraw.pause((int)(wait / 1000000));
+            } else {
+                nextFrame = System.nanoTime();
+            }
+        }
+
+        try {
+            simulation.stop();
+            methodText.text = "Stopped at generation " + game.getGeneration() + ".";
+        } catch (RuntimeException e) {
+            methodText.text = "Playing stopped: " + e.getMessage();
+        }
+        btn.name = "Play";
+        methodBoard.board = null;
+        methodBoard.cells = game::getCellState;
+        displayPage(Page.METHOD);
+        StdDraw.pause(DELAY);
+    }
+
+
+    // Zooms or pans the board for a typed key (0 if none) and any arrow keys held down, returns true if the view moved
+    public static boolean moveView(Board b, char keystroke) {
+        double before = b.getZoom();
+        int row = b.getViewRow(), col = b.getViewCol();
+        switch (Character.toLowerCase(keystroke)) {
+            case '+': case '=': b.zoomBy(2); break;
+            case '-': case '_': b.zoomBy(0.5); break;
+            case '0': b.resetView(); break;
+            case 'w': b.pan(-Math.max(1, b.visibleRows() / 8), 0); break;
+            case 's': b.pan(Math.max(1, b.visibleRows() / 8), 0); break;
+            case 'a': b.pan(0, -Math.max(1, b.visibleCols() / 8)); break;
+            case 'd': b.pan(0, Math.max(1, b.visibleCols() / 8)); break;
+        }
+        int dRows = Math.max(1, b.visibleRows() / PAN_DIVISOR);
+        int dCols = Math.max(1, b.visibleCols() / PAN_DIVISOR);
+        int[][] arrows = {{KeyEvent.VK_UP, -dRows, 0}, {KeyEvent.VK_DOWN, dRows, 0},
+                          {KeyEvent.VK_LEFT, 0, -dCols}, {KeyEvent.VK_RIGHT, 0, dCols}};
+        for (int[] arrow : arrows) {
+            if (StdDraw.isKeyPressed(arrow[0])) {
+                b.pan(arrow[1], arrow[2]);
+            }
+        }
+        return b.getZoom() != before || b.getViewRow() != row || b.getViewCol() != col;
+    }
+
+
+    // Pans the board with the mouse until the button is let go, the cell grabbed stays under the mouse
+    public static void dragBoard(Board b) {
+        double startX = StdDraw.mouseX();
+        double startY = StdDraw.mouseY();
+        int startRow = b.getViewRow();
+        int startCol = b.getViewCol();
+        while (StdDraw.isMousePressed()) {
+            int dRows = (int)Math.round((StdDraw.mouseY() - startY) / b.incY);
+            int dCols = (int)Math.round((startX - StdDraw.mouseX()) / b.incX);
+            if (startRow + dRows != b.getViewRow() || startCol + dCols != b.getViewCol()) {
+                b.pan(startRow + dRows - b.getViewRow(), startCol + dCols - b.getViewCol());
+                b.drawChanges();
+                StdDraw.show();
+            }
+            StdDraw.pause(15);
+        }
+    }
+
+
     // Get number to put at end of file for saving current state of board
     public static int getNextAvailableNumber(String currentFilename) {
         int num = -1;  // number to return for end of filename
@@ -606,8 +744,9 @@ public class Driver {
                 
                 // Following will throw error if file doesn't have extension
                 try {
-                    // Ensure file is txt file that contains filename_saved in it
-                    if (filename.substring(indexOfExtension).equals(".txt") && filename.contains(beginning)) {
+                    // Ensure file is in a format games are saved in and contains filename_saved in it
+                    String extension = filename.substring(indexOfExtension);
+                    if (GridFormat.forFile(filename).getExtension().equals(extension) && filename.contains(beginning)) {
                         // Get number from file, so if current filename is "name_saved3.txt", this will get the "3"
                         String currentNumber = filename.substring(filename.indexOf(beginning) + beginning.length(), indexOfExtension);
                         
@@ -1,6 +1,13 @@
 package conwaygame;
 
-import java.util.ArrayList;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * Conway's Game of Life Class holds various methods that will
@@ -22,9 +29,32 @@ public class GameOfLife {
     private static final boolean ALIVE = true;
     private static final boolean DEAD = false;
 
+    // Boards with fewer cells than this are always stepped on one thread, splitting them costs more than it saves
+    public static final int PARALLEL_THRESHOLD = 512 * 512;
+    // Most generations remembered while looking for a cycle, older ones are forgotten
+    public static final int MAX_CYCLE_HISTORY = 1 << 20;
+    // Grid files at least this many bytes are memory-mapped and parsed in parallel
+    public static final long MAPPED_THRESHOLD = 64L << 20;
+
     private boolean[][] grid; // The board has the current generation of cells
+    private boolean[][] nextGrid; // Back buffer the next generation is computed into, swapped with grid
+    private boolean[][] snapshot; // Copy of the current generation handed out by getGrid(), made on demand
     private int totalAliveCells; // Total number of alive cells in the grid (board)
 
+    private Backend backend = Backend.BOOLEAN; // Which representation generations are computed with
+    private LifeEngine engine; // Holds the board instead of grid when backend is not BOOLEAN
+
+    private int parallelism = 1; // Number of threads generations are computed on
+    private ForkJoinPool pool; // Runs the row bands when parallelism > 1, null otherwise
+
+    private long generation; // Number of generations computed since the game was created
+    private boolean cycleDetection; // Whether nextGeneration(n) looks for repeating boards
+    private long hash; // Zobrist hash of grid, kept up to date while cycleDetection is on
+    private long[] rowHashes; // Hash change of each row in the last step, null when cycleDetection is off
+    private LongIntHashMap history; // Hash of each generation seen in nextGeneration(n) -> its step number
+    private long cycleStart = -1; // Generation the last detected cycle was entered at
+    private int cyclePeriod; // Period of the last detected cycle, 0 if none was found
+
     /**
      * Default Constructor which creates a small 5x5 grid with five alive cells.
      * This variation does not exceed bounds and dies off after four iterations.
@@ -50,29 +80,155 @@ public class GameOfLife {
      *             An integer representing the number of grid columns, say c
      *             Number of r lines, each containing c true or false values (true
      *             denotes an ALIVE cell)
+     *             Files ending in .rle are read as RLE patterns instead (see
+     *             RleFormat), and files ending in .gol as binary snapshots, which
+     *             also restore the generation they were saved at (see
+     *             BinarySnapshot), and files ending in .mc as macrocell quadtrees
+     *             (see MacrocellFormat)
+     * @throws IOException if the file cannot be read or is malformed, the message
+     *                     gives the line and column of the problem
      */
-    public GameOfLife(String file) {
-        StdIn.setFile(file);
+    public GameOfLife(String file) throws IOException {
+        switch (GridFormat.forFile(file)) {
+            case RLE:
+                grid = RleFormat.read(file);
+                break;
+            case SNAPSHOT:
+                BinarySnapshot saved = BinarySnapshot.read(file);
+                grid = saved.toGrid();
+                generation = saved.getGeneration();
+                break;
+            case MACROCELL:
+                MacrocellFormat macrocell = MacrocellFormat.read(file);
+                grid = macrocell.getGrid();
+                generation = macrocell.getGeneration();
+                break;
+            default:
+                if (new File(file).length() >= MAPPED_THRESHOLD)
+                    grid = MappedGridReader.readGrid(file, ForkJoinPool.commonPool());
+                else
+                    grid = GridReader.read(file);
+                break;
+        }
         totalAliveCells = 0;
-        int rows = Integer.parseInt(StdIn.readLine());
-        int cols = Integer.parseInt(StdIn.readLine());
-        grid = new boolean[rows][cols];
-        for (int i = 0; i < rows; i++) {
-            for (int j = 0; j < cols; j++) {
-                grid[i][j] = StdIn.readBoolean();
-                if (grid[i][j])
+        for (boolean[] row : grid)
+            for (boolean cell : row)
+                if (cell)
+                    totalAliveCells++;
+    }
+
+    /**
+     * Constructor that reads a grid file (see GameOfLife(String)) straight into a
+     * backend. With PACKED a text file is memory-mapped and parsed in parallel into the
+     * packed board, and the words of a snapshot are taken over as they are, without a
+     * boolean[][] copy of the grid ever being made.
+     * 
+     * @param file    is the input file with the initial game pattern
+     * @param backend the backend to compute generations with
+     * @throws IOException if the file cannot be read or is malformed
+     */
+    public GameOfLife(String file, Backend backend) throws IOException {
+        if (backend == Backend.PACKED && GridFormat.forFile(file) == GridFormat.TEXT) {
+            engine = MappedGridReader.readPacked(file, ForkJoinPool.commonPool());
+            this.backend = backend;
+        } else if (backend == Backend.PACKED && GridFormat.forFile(file) == GridFormat.SNAPSHOT) {
+            BinarySnapshot saved = BinarySnapshot.read(file);
+            engine = saved.toPackedGrid();
+            generation = saved.getGeneration();
+            this.backend = backend;
+        } else {
+            GameOfLife loaded = new GameOfLife(file);
+            grid = loaded.grid;
+            totalAliveCells = loaded.totalAliveCells;
+            generation = loaded.generation;
+            setBackend(backend);
+        }
+    }
+
+    /**
+     * Constructor that starts from an existing grid. The grid is copied, so later
+     * changes to the array passed in do not affect the game.
+     * 
+     * @param grid initial game pattern, true denotes an ALIVE cell
+     */
+    public GameOfLife(boolean[][] grid) {
+        this.grid = new boolean[grid.length][];
+        totalAliveCells = 0;
+        for (int i = 0; i < grid.length; i++) {
+            this.grid[i] = grid[i].clone();
+            for (boolean j : grid[i])
+                if (j)
                     totalAliveCells++;
-            }
         }
     }
 
     /**
-     * Returns grid
+     * Returns a snapshot of the current grid. The copy is only made the first time
+     * it is asked for in each generation, so stepping itself never allocates, and
+     * the returned array is never overwritten by later generations.
      * 
      * @return boolean[][] for current grid
      */
     public boolean[][] getGrid() {
-        return grid;
+        if (snapshot == null) {
+            if (engine != null) {
+                snapshot = engine.toGrid();
+            } else {
+                snapshot = new boolean[grid.length][];
+                for (int i = 0; i < grid.length; i++)
+                    snapshot[i] = grid[i].clone();
+            }
+        }
+        return snapshot;
+    }
+
+    /**
+     * Saves the current grid, in the format the extension of the file name picks
+     * (see GridFormat). A saved file can be loaded again with GameOfLife(String).
+     * Snapshots and macrocells keep the generation number. Snapshots are compressed
+     * and a PACKED board is written out without being unpacked, macrocells write
+     * every distinct 8x8 square and quadtree node once.
+     * 
+     * @param file name of the file, an existing file is overwritten
+     * @throws IOException if the file cannot be written
+     */
+    public void save(String file) throws IOException {
+        switch (GridFormat.forFile(file)) {
+            case RLE:
+                RleFormat.write(currentGrid(), file);
+                break;
+            case SNAPSHOT:
+                BinarySnapshot saved;
+                if (engine instanceof PackedGrid) {
+                    PackedGrid packed = (PackedGrid) engine;
+                    saved = new BinarySnapshot(packed.getRows(), packed.getCols(), generation, packed.copyWords());
+                } else {
+                    saved = BinarySnapshot.of(currentGrid(), generation);
+                }
+                saved.write(file, true);
+                break;
+            case MACROCELL:
+                MacrocellFormat.write(currentGrid(), generation, file);
+                break;
+            default:
+                writeText(currentGrid(), file);
+                break;
+        }
+    }
+
+    /**
+     * Writes the rows, the columns and a true or false value per cell, the format
+     * GameOfLife(String) reads
+     */
+    private static void writeText(boolean[][] grid, String file) throws IOException {
+        try (Writer out = new BufferedWriter(new FileWriter(file))) {
+            out.write(grid.length + "\n" + grid[0].length + "\n");
+            for (boolean[] row : grid) {
+                for (boolean cell : row)
+                    out.write(cell ? "true   " : "false  ");
+                out.write("\n");
+            }
+        }
     }
 
     /**
@@ -81,9 +237,179 @@ public class GameOfLife {
      * @return int for total number of alive cells in grid
      */
     public int getTotalAliveCells() {
+        if (engine != null)
+            return engine.getTotalAliveCells();
         return totalAliveCells;
     }
 
+    /**
+     * Returns the backend generations are currently computed with
+     * 
+     * @return Backend in use, BOOLEAN by default
+     */
+    public Backend getBackend() {
+        return backend;
+    }
+
+    /**
+     * Returns the engine holding the board, for backend specific settings and stats
+     * such as TiledGrid.getActiveTiles()
+     * 
+     * @return LifeEngine in use, null when the backend is BOOLEAN
+     */
+    public LifeEngine getEngine() {
+        return engine;
+    }
+
+    /**
+     * Moves the current board onto another backend. Every backend follows the same
+     * rules, so this only changes how fast generations are computed, not the results.
+     * 
+     * @param backend the backend to compute generations with from now on
+     */
+    public void setBackend(Backend backend) {
+        if (backend == this.backend)
+            return;
+        boolean[][] current = currentGrid();
+        snapshot = null;
+        switch (backend) {
+            case PACKED:
+                engine = new PackedGrid(current);
+                break;
+            case HASHLIFE:
+                engine = new HashLife(current);
+                break;
+            case SPARSE:
+                engine = new SparseGrid(current);
+                break;
+            case TILED:
+                engine = new TiledGrid(current);
+                break;
+            case LOOKUP:
+                engine = new LookupGrid(current);
+                break;
+            default:
+                totalAliveCells = engine.getTotalAliveCells();
+                // current is the snapshot getGrid() handed out, which must never change, so the
+                // board gets a copy of its own to step in place
+                grid = engine.toGrid();
+                engine = null;
+                break;
+        }
+        if (engine != null) {
+            grid = null;
+            nextGrid = null;
+        }
+        if (engine instanceof PackedGrid) // PACKED and TILED, both step large boards on the pool
+            ((PackedGrid) engine).setPool(pool);
+        this.backend = backend;
+        if (cycleDetection)
+            rehash();
+    }
+
+    /**
+     * Returns the number of threads generations are computed on
+     * 
+     * @return int for parallelism, 1 when stepping sequentially
+     */
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    /**
+     * Sets the number of threads generations are computed on. With more than one
+     * thread the grid is split into bands of rows that are computed on a ForkJoinPool.
+     * Boards smaller than PARALLEL_THRESHOLD cells are still stepped sequentially.
+     * The PACKED and TILED backends use the same pool above PackedGrid.PARALLEL_THRESHOLD,
+     * TILED in bands of tile rows. numOfCommunitiesByRuns() labels large boards on the same pool.
+     * 
+     * @param parallelism number of threads, 1 to always step sequentially
+     */
+    public void setParallelism(int parallelism) {
+        if (parallelism < 1)
+            throw new IllegalArgumentException("Parallelism must be at least 1");
+        if (parallelism == this.parallelism)
+            return;
+        if (pool != null)
+            pool.shutdown();
+        this.parallelism = parallelism;
+        pool = (parallelism > 1) ? new ForkJoinPool(parallelism) : null;
+        if (engine instanceof PackedGrid)
+            ((PackedGrid) engine).setPool(pool);
+    }
+
+    /**
+     * Returns the number of generations computed since the game was created
+     * 
+     * @return long for the current generation number
+     */
+    public long getGeneration() {
+        return generation;
+    }
+
+    /**
+     * Turns cycle detection on or off. While it is on, nextGeneration(n) hashes every
+     * generation and, as soon as the board repeats, skips straight to the generation it
+     * would have reached, using the period of the repetition. Stepping one generation
+     * at a time is what makes this work, so it is no help on the HASHLIFE backend.
+     * BOOLEAN and TILED keep the hash up to date as they step, so only what changed is
+     * hashed. PACKED and LOOKUP rewrite every word or cell each step anyway and hash the
+     * board in one pass over the non-empty words, a few percent of a step. SPARSE hashes
+     * its alive cells.
+     * 
+     * @param cycleDetection true to look for repeating boards
+     */
+    public void setCycleDetection(boolean cycleDetection) {
+        this.cycleDetection = cycleDetection;
+        if (cycleDetection && history == null) {
+            history = new LongIntHashMap();
+            rehash();
+        } else if (!cycleDetection) {
+            history = null;
+            rowHashes = null;
+            if (engine != null)
+                engine.setHashTracking(false);
+        }
+    }
+
+    /**
+     * Returns the period of the cycle found by the last nextGeneration(n) call
+     * 
+     * @return int for the period (1 for a still life), 0 if no cycle was found
+     */
+    public int getCyclePeriod() {
+        return cyclePeriod;
+    }
+
+    /**
+     * Returns the generation at which the board entered the cycle found by the last
+     * nextGeneration(n) call. Exact as long as it was entered within the last
+     * MAX_CYCLE_HISTORY generations of that call.
+     * 
+     * @return long for the generation number, -1 if no cycle was found
+     */
+    public long getCycleStart() {
+        return cycleStart;
+    }
+
+    /**
+     * Returns the number of rows of the board
+     * 
+     * @return int for the number of rows
+     */
+    public int getRows() {
+        return (engine != null) ? engine.getRows() : grid.length;
+    }
+
+    /**
+     * Returns the number of columns of the board
+     * 
+     * @return int for the number of columns
+     */
+    public int getCols() {
+        return (engine != null) ? engine.getCols() : grid[0].length;
+    }
+
     /**
      * Returns the status of the cell at (row,col): ALIVE or DEAD
      * 
@@ -92,6 +418,8 @@ public class GameOfLife {
      * @return true or false value "ALIVE" or "DEAD" (state of the cell)
      */
     public boolean getCellState(int row, int col) {
+        if (engine != null)
+            return engine.getCellState(row, col);
         if (grid[row][col])
             return ALIVE;
         return DEAD;
@@ -103,11 +431,7 @@ public class GameOfLife {
      * @return true if there is at least one cell alive, otherwise returns false
      */
     public boolean isAlive() {
-        for (boolean[] i : grid)
-            for (boolean j : i)
-                if (j)
-                    return true;
-        return false;
+        return getTotalAliveCells() > 0;
     }
 
     /**
@@ -120,27 +444,34 @@ public class GameOfLife {
      * @return neighboringCells, the number of alive cells (at most 8).
      */
     public int numOfAliveNeighbors(int row, int col) {
+        return countNeighbors(currentGrid(), row, col);
+    }
 
-        int[] rowCheck = { row - 1, row, row + 1 };
-        int[] colCheck = { col - 1, col, col + 1 };
-        int count = 0;
-
-        if (row == 0)
-            rowCheck[0] = grid.length - 1;
-        if (row == grid.length - 1)
-            rowCheck[2] = 0;
-        if (col == 0)
-            colCheck[0] = grid[row].length - 1;
-        if (col == grid[row].length - 1)
-            colCheck[2] = 0;
-
-        for (int i = 0; i < 3; i++)
-            for (int j = 0; j < 3; j++)
-                if (grid[rowCheck[i]][colCheck[j]])
-                    count++;
-        if (grid[row][col])
-            count--;
+    /**
+     * Counts the alive neighbors of (row,col) in g without allocating anything.
+     * Edges wrap around, and on boards only one or two cells wide the same cell
+     * may be counted more than once, exactly as a 3x3 scan of wrapped indices would.
+     * 
+     * @param g   grid to count in
+     * @param row row position of the cell
+     * @param col column position of the cell
+     * @return the number of alive neighbors (at most 8)
+     */
+    private static int countNeighbors(boolean[][] g, int row, int col) {
+        int up = (row == 0) ? g.length - 1 : row - 1;
+        int down = (row == g.length - 1) ? 0 : row + 1;
+        int left = (col == 0) ? g[row].length - 1 : col - 1;
+        int right = (col == g[row].length - 1) ? 0 : col + 1;
 
+        int count = 0;
+        if (g[up][left]) count++;
+        if (g[up][col]) count++;
+        if (g[up][right]) count++;
+        if (g[row][left]) count++;
+        if (g[row][right]) count++;
+        if (g[down][left]) count++;
+        if (g[down][col]) count++;
+        if (g[down][right]) count++;
         return count;
     }
 
@@ -151,42 +482,85 @@ public class GameOfLife {
      * @return boolean[][] of new grid (this is a new 2D array)
      */
     public boolean[][] computeNewGrid() {
-        boolean[][] temp = new boolean[grid.length][grid[0].length];
-        for (int i = 0; i < grid.length; i++) {
-            for (int j = 0; j < grid[i].length; j++) {
-                int alive = numOfAliveNeighbors(i, j);
-
-                if (alive <= 1) {
-                    temp[i][j] = DEAD;
-                    totalAliveCells--;
-                } else if ((alive == 2 || alive == 3) && grid[i][j] == ALIVE)
-                    temp[i][j] = ALIVE;
-                else if (alive == 3 && grid[i][j] == DEAD) {
-                    temp[i][j] = ALIVE;
-                    totalAliveCells++;
-                } else {
-                    temp[i][j] = DEAD;
-                    totalAliveCells--;
+        boolean[][] current = currentGrid();
+        boolean[][] temp = new boolean[current.length][current[0].length];
+        computeRows(current, temp, 0, current.length, null);
+        return temp;
+    }
+
+    /**
+     * Writes the next generation of rows [fromRow, toRow) of src into dst
+     * 
+     * @param src     grid holding the current generation
+     * @param dst     grid the next generation is written into, same size as src
+     * @param fromRow first row to compute
+     * @param toRow   row after the last row to compute
+     * @param rowHashes if not null, receives the XOR of the Zobrist keys of the cells
+     *                  that changed in each row
+     * @return births minus deaths in those rows
+     */
+    private static int computeRows(boolean[][] src, boolean[][] dst, int fromRow, int toRow, long[] rowHashes) {
+        int change = 0;
+        for (int i = fromRow; i < toRow; i++) {
+            long rowHash = 0;
+            for (int j = 0; j < src[i].length; j++) {
+                int alive = countNeighbors(src, i, j);
+                dst[i][j] = (alive == 3) || (alive == 2 && src[i][j] == ALIVE);
+                if (dst[i][j] != src[i][j]) {
+                    change += dst[i][j] ? 1 : -1;
+                    if (rowHashes != null)
+                        rowHash ^= LifeEngine.zobrist((long) i * src[i].length + j);
                 }
             }
+            if (rowHashes != null)
+                rowHashes[i] = rowHash;
         }
+        return change;
+    }
 
-        return temp;
+    /**
+     * Returns the grid holding the current generation without copying it
+     * 
+     * @return grid when using the BOOLEAN backend, otherwise a copy from the engine
+     */
+    private boolean[][] currentGrid() {
+        return (engine != null) ? getGrid() : grid;
     }
 
     /**
-     * Updates the current grid (the grid instance variable) with the grid denoting
-     * the next generation of cells computed by computeNewGrid().
+     * Updates the current grid (the grid instance variable) with the next
+     * generation of cells. The next generation is computed into a second buffer
+     * which is then swapped with grid, so after the first call no new arrays are
+     * created. Large boards are split into row bands when parallelism is above 1.
      * 
-     * Updates totalAliveCells instance variable
+     * Updates totalAliveCells instance variable from the births and deaths of the step
      */
     public void nextGeneration() {
-        grid = computeNewGrid();
-        totalAliveCells = 0;
-        for (boolean[] i : grid)
-            for (boolean j : i)
-                if (j == ALIVE)
-                    totalAliveCells++;
+        snapshot = null;
+        if (engine != null) {
+            engine.nextGeneration();
+            generation++;
+            return;
+        }
+        generation++;
+        if (nextGrid == null)
+            nextGrid = new boolean[grid.length][grid[0].length];
+        if (pool != null && (long) grid.length * grid[0].length >= PARALLEL_THRESHOLD) {
+            boolean[][] src = grid, dst = nextGrid;
+            long[] hashes = rowHashes;
+            RowBands bands = new RowBands((from, to) -> computeRows(src, dst, from, to, hashes),
+                    0, grid.length, RowBands.bandRows(grid.length, parallelism));
+            pool.invoke(bands);
+            totalAliveCells += bands.getTotal();
+        } else {
+            totalAliveCells += computeRows(grid, nextGrid, 0, grid.length, rowHashes);
+        }
+        if (rowHashes != null)
+            for (long rowHash : rowHashes)
+                hash ^= rowHash;
+        boolean[][] temp = grid;
+        grid = nextGrid;
+        nextGrid = temp;
     }
 
     /**
@@ -194,55 +568,182 @@ public class GameOfLife {
      * generations.
      * 
      * @param n number of iterations that the grid will go through to compute a new
-     *          grid
+     *          grid, nothing happens if it is 0 or less
      */
     public void nextGeneration(int n) {
+        if (n <= 0)
+            return;
+        if (cycleDetection) {
+            fastForward(n);
+            return;
+        }
+        if (engine != null) {
+            snapshot = null;
+            engine.nextGeneration(n);
+            generation += n; // Only once the engine got there, so a failed step leaves it alone
+            return;
+        }
         for (int i = 0; i < n; i++)
             nextGeneration();
     }
 
+    /**
+     * Steps n generations one at a time, remembering the hash of each. When a hash
+     * comes back, the board is stepped one more period and compared with a copy to make
+     * sure it really repeats, then the remaining generations are skipped except for
+     * (remaining % period) of them.
+     * 
+     * @param n number of generations to compute
+     */
+    private void fastForward(int n) {
+        cycleStart = -1;
+        cyclePeriod = 0;
+        history.clear();
+        long firstGeneration = generation;
+        history.put(stateHash(), 0);
+
+        int step = 0;
+        while (step < n) {
+            nextGeneration();
+            step++;
+            long h = stateHash();
+            int seen = history.get(h, -1);
+            int period = step - seen;
+            if (seen >= 0 && n - step >= period) {
+                boolean[][] copy = getGrid();
+                for (int i = 0; i < period; i++)
+                    nextGeneration();
+                step += period;
+                if (Arrays.deepEquals(copy, currentGrid())) {
+                    cycleStart = firstGeneration + seen;
+                    cyclePeriod = period;
+                    int remaining = (n - step) % period;
+                    generation += (n - step) - remaining;
+                    for (int i = 0; i < remaining; i++)
+                        nextGeneration();
+                    return;
+                }
+                h = stateHash(); // Two different boards hashed the same, keep going
+            }
+            if (history.size() >= MAX_CYCLE_HISTORY)
+                history.clear();
+            history.put(h, step);
+        }
+    }
+
+    /**
+     * Returns the hash of the current generation, never negative so it can be used
+     * as a LongIntHashMap key
+     */
+    private long stateHash() {
+        long h = (engine != null) ? engine.stateHash() : hash;
+        return h & Long.MAX_VALUE;
+    }
+
+    /**
+     * Recomputes the hash of the boolean grid from scratch and starts tracking row changes,
+     * or has the engine do the same for its own hash
+     */
+    private void rehash() {
+        if (engine != null) {
+            rowHashes = null;
+            engine.setHashTracking(true);
+            return;
+        }
+        hash = 0;
+        for (int i = 0; i < grid.length; i++)
+            for (int j = 0; j < grid[i].length; j++)
+                if (grid[i][j])
+                    hash ^= LifeEngine.zobrist((long) i * grid[i].length + j);
+        rowHashes = new long[grid.length];
+    }
+
     /**
      * Determines the number of separate cell communities in the grid
      * 
+     * Every alive cell starts as its own community and every union that joins two
+     * different communities removes one, so the count is finished in the same pass.
+     * Cells are only joined with their east, south-west, south and south-east
+     * neighbors (wrapping around), the other four neighbors join them from their side.
+     * 
      * @return the number of communities in the grid, communities can be formed from
      *         edges
      */
     public int numOfCommunities() {
-        ArrayList<Integer> x = new ArrayList<Integer>();
-        WeightedQuickUnionUF uf = new WeightedQuickUnionUF(grid.length, grid[0].length);
-        for (int row = 0; row < grid.length; row++) {
-            for (int col = 0; col < grid[row].length; col++) {
-                if (getCellState(row, col)) {
-                    // same code as numOfAliveNeighbors
-                    int[] rowCheck = { row - 1, row, row + 1 };
-                    int[] colCheck = { col - 1, col, col + 1 };
-                    if (row == 0)
-                        rowCheck[0] = grid.length - 1;
-                    if (row == grid.length - 1)
-                        rowCheck[2] = 0;
-                    if (col == 0)
-                        colCheck[0] = grid[row].length - 1;
-                    if (col == grid[row].length - 1)
-                        colCheck[2] = 0;
-                    for (int i = 0; i < 3; i++) {
-                        for (int j = 0; j < 3; j++) {
-                            if (getCellState(rowCheck[i], colCheck[j]))
-                                uf.union(rowCheck[i], colCheck[j], row, col);
-                        }
-                    }
-                }
-            }
-        }
-        for (int row = 0; row < grid.length; row++) {
-            for (int col = 0; col < grid[row].length; col++) {
-                if (getCellState(row, col)) {
-                    if (x.contains(uf.find(row, col)))
-                        continue;
-                    else
-                        x.add(uf.find(row, col));
-                }
+        boolean[][] grid = currentGrid();
+        int rows = grid.length;
+        int cols = grid[0].length;
+        WeightedQuickUnionUF uf = new WeightedQuickUnionUF(rows, cols);
+        int communities = 0;
+        for (int row = 0; row < rows; row++) {
+            int down = (row == rows - 1) ? 0 : row + 1;
+            for (int col = 0; col < cols; col++) {
+                if (!grid[row][col])
+                    continue;
+                communities++;
+                int left = (col == 0) ? cols - 1 : col - 1;
+                int right = (col == cols - 1) ? 0 : col + 1;
+                int cell = row * cols + col;
+                if (grid[row][right] && uf.union(cell, row * cols + right))
+                    communities--;
+                if (grid[down][left] && uf.union(cell, down * cols + left))
+                    communities--;
+                if (grid[down][col] && uf.union(cell, down * cols + col))
+                    communities--;
+                if (grid[down][right] && uf.union(cell, down * cols + right))
+                    communities--;
             }
         }
-        return x.size();
+        return communities;
+    }
+
+    /**
+     * Determines the number of separate cell communities in the grid by labeling runs
+     * of alive cells instead of single cells (see RunLabeler). Boards of at least
+     * PARALLEL_THRESHOLD cells are labeled in row bands when parallelism is above 1.
+     * 
+     * @return the same count as numOfCommunities(), communities can be formed from
+     *         edges
+     */
+    public int numOfCommunitiesByRuns() {
+        boolean[][] grid = currentGrid();
+        if (pool != null && (long) grid.length * grid[0].length >= PARALLEL_THRESHOLD)
+            return new RunLabeler(grid, pool, parallelism).count(pool, parallelism);
+        return new RunLabeler(grid).count();
+    }
+
+    /**
+     * Collects the size, bounding box and centroid of every community in one pass
+     * 
+     * @return CommunityStats of the current grid, communities can be formed from edges
+     */
+    public CommunityStats communityStats() {
+        return new CommunityStats(currentGrid());
+    }
+
+    /**
+     * Starts tracking the communities of the current grid. Pass the tracker to
+     * updateCommunities() after every generation to get the communities that were
+     * born, died, merged or split.
+     * 
+     * @return CommunityTracker labeled with the current grid
+     */
+    public CommunityTracker trackCommunities() {
+        return new CommunityTracker(currentGrid());
+    }
+
+    /**
+     * Moves a tracker from trackCommunities() on to the current generation. On the
+     * TILED backend only the tiles that changed since the tracker's last update are
+     * compared, the other backends compare the whole grid without copying it first
+     * where they can.
+     * 
+     * @param tracker tracker of this game
+     * @return what happened to the communities, empty if no community changed
+     */
+    public List<CommunityEvent> updateCommunities(CommunityTracker tracker) {
+        if (engine instanceof TiledGrid)
+            return tracker.update((TiledGrid) engine);
+        return tracker.update(currentGrid());
     }
 }
\ No newline at end of file
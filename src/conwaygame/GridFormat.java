@@ -0,0 +1,36 @@
+package conwaygame;
+/*
+ * Enum class for the file formats a grid can be loaded from and saved to, picked by the
+ * extension of the file name
+ *
+ * TEXT is the original rows, cols and true/false per cell format, and anything without
+ * another known extension is read as TEXT. SNAPSHOT is the binary format of
+ * BinarySnapshot, MACROCELL the quadtree format of MacrocellFormat.
+ */
+public enum GridFormat {
+    TEXT(".txt"), RLE(".rle"), SNAPSHOT(".gol"), MACROCELL(".mc");
+
+    private final String extension;
+
+    GridFormat(String extension) {
+        this.extension = extension;
+    }
+
+    public String getExtension() {
+        return extension;
+    }
+
+    /**
+     * Picks the format of a file from its extension, case does not matter
+     *
+     * @param file name of the file
+     * @return GridFormat of the file, TEXT if the extension is not known
+     */
+    public static GridFormat forFile(String file) {
+        String name = file.toLowerCase();
+        for (GridFormat format : values())
+            if (name.endsWith(format.extension))
+                return format;
+        return TEXT;
+    }
+}
@@ -0,0 +1,193 @@
+package conwaygame;
+/*
+ * Reads grid files byte by byte instead of through Scanner tokens. The format is the one
+ * GameOfLife(String) has always read: the number of rows, the number of columns, and then
+ * one true or false value per cell (1 and 0 work too, case does not matter), separated by
+ * any whitespace. Malformed input is reported with the line and column it was found at.
+ */
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+public class GridReader {
+
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final int MAX_SHOWN = 20; // Longest part of a bad token repeated in an error
+
+    private final InputStream in;
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+    private int pos;
+    private int limit;
+    private long bufferOffset; // Position in the file of buffer[0]
+    private int line = 1;
+    private long lineStart; // Position in the file of the first byte of the current line
+
+    private GridReader(InputStream in) {
+        this.in = in;
+    }
+
+    /**
+     * Reads a grid file
+     *
+     * @param file name of the file
+     * @return boolean[][] grid, true denotes an ALIVE cell
+     * @throws IOException if the file cannot be read or is not a grid file
+     */
+    public static boolean[][] read(String file) throws IOException {
+        try (InputStream in = new FileInputStream(file)) {
+            return read(in);
+        }
+    }
+
+    /**
+     * Reads a grid from a stream, which is not closed
+     *
+     * @param in stream in the grid file format
+     * @return boolean[][] grid, true denotes an ALIVE cell
+     * @throws IOException if the stream cannot be read or is not in the grid file format
+     */
+    public static boolean[][] read(InputStream in) throws IOException {
+        GridReader reader = new GridReader(in);
+        int rows = reader.readInt("number of rows");
+        int cols = reader.readInt("number of columns");
+        boolean[][] grid = new boolean[rows][cols];
+        for (int i = 0; i < rows; i++)
+            for (int j = 0; j < cols; j++)
+                grid[i][j] = reader.readBoolean();
+        return grid;
+    }
+
+    /**
+     * Reads a positive int token
+     */
+    private int readInt(String what) throws IOException {
+        int b = skipWhitespace();
+        long start = position();
+        if (b == -1)
+            throw error(start, "expected the " + what + " but the file ended");
+        long value = 0;
+        while (b >= '0' && b <= '9' && value <= Integer.MAX_VALUE) {
+            value = value * 10 + (b - '0');
+            pos++;
+            b = peek();
+        }
+        if (!isDelimiter(b) || position() == start || value < 1 || value > Integer.MAX_VALUE)
+            throw error(start, "expected the " + what + " but found \"" + token(start) + "\"");
+        return (int) value;
+    }
+
+    /**
+     * Reads a true, false, 1 or 0 token
+     */
+    private boolean readBoolean() throws IOException {
+        int b = skipWhitespace();
+        long start = position();
+        if (b == -1)
+            throw error(start, "expected true or false but the file ended");
+        boolean value;
+        switch (b) {
+            case '1':
+                value = true;
+                pos++;
+                break;
+            case '0':
+                value = false;
+                pos++;
+                break;
+            case 't':
+            case 'T':
+                value = true;
+                pos++;
+                if (!matches("rue"))
+                    throw error(start, "expected true or false but found \"" + token(start) + "\"");
+                break;
+            case 'f':
+            case 'F':
+                value = false;
+                pos++;
+                if (!matches("alse"))
+                    throw error(start, "expected true or false but found \"" + token(start) + "\"");
+                break;
+            default:
+                throw error(start, "expected true or false but found \"" + token(start) + "\"");
+        }
+        if (!isDelimiter(peek()))
+            throw error(start, "expected true or false but found \"" + token(start) + "\"");
+        return value;
+    }
+
+    /**
+     * Consumes the given lower case letters in any case
+     *
+     * @return true if they were all there
+     */
+    private boolean matches(String rest) throws IOException {
+        for (int i = 0; i < rest.length(); i++) {
+            if ((peek() | 0x20) != rest.charAt(i))
+                return false;
+            pos++;
+        }
+        return true;
+    }
+
+    /**
+     * Skips whitespace, keeping track of lines
+     *
+     * @return the first byte after it without consuming it, -1 at the end of the file
+     */
+    private int skipWhitespace() throws IOException {
+        while (true) {
+            int b = peek();
+            if (b == '\n') {
+                line++;
+                lineStart = position() + 1;
+            } else if (b != ' ' && b != '\t' && b != '\r' && b != '\f') {
+                return b;
+            }
+            pos++;
+        }
+    }
+
+    /**
+     * Returns the next byte without consuming it, -1 at the end of the file
+     */
+    private int peek() throws IOException {
+        if (pos == limit) {
+            bufferOffset += limit;
+            pos = 0;
+            limit = Math.max(0, in.read(buffer));
+            if (limit == 0)
+                return -1;
+        }
+        return buffer[pos] & 0xFF;
+    }
+
+    private long position() {
+        return bufferOffset + pos;
+    }
+
+    private static boolean isDelimiter(int b) {
+        return b == -1 || b == ' ' || b == '\t' || b == '\n' || b == '\r' || b == '\f';
+    }
+
+    /**
+     * Consumes the rest of a bad token and returns the start of it for an error message,
+     * only the part of it still in the buffer can be shown
+     */
+    private String token(long start) throws IOException {
+        StringBuilder token = new StringBuilder();
+        int from = (int) Math.max(0, start - bufferOffset);
+        for (int i = from; i < pos && token.length() < MAX_SHOWN; i++)
+            token.append((char) (buffer[i] & 0xFF));
+        while (!isDelimiter(peek())) {
+            if (token.length() < MAX_SHOWN)
+                token.append((char) peek());
+            pos++;
+        }
+        return token.toString();
+    }
+
+    private IOException error(long start, String message) {
+        return new IOException("Line " + line + ", column " + (start - lineStart + 1) + ": " + message);
+    }
+}
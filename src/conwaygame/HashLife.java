@@ -0,0 +1,641 @@
+package conwaygame;
+/*
+ * HashLife engine. The board is kept as a hash-consed quadtree whose nodes remember what
+ * their center looks like 2^j generations later, so regular patterns can be advanced by
+ * huge numbers of generations in a handful of node steps. The smallest nodes are 8x8
+ * leaves held as one long (bit 8 * row + col, like MacrocellFormat), and 16x16 nodes are
+ * stepped with bitwise operations on their rows instead of cell by cell.
+ *
+ * HashLife normally runs on an infinite plane, but GameOfLife wraps around its edges.
+ * A wrapped board behaves exactly like the infinite plane tiled with copies of itself.
+ * The board is kept as a quadtree whose top left rows x cols cells are one copy of the
+ * tiling, and each jump builds a node over the tiling out of that tree, advances it and
+ * keeps the top left corner of the result as the new tree. The result is shifted against
+ * the board, which is tracked by an origin instead of moving any cells. Squares of the
+ * tiling that line up with the tree are reused as they are, so a board whose sides are
+ * the same power of two is tiled in a handful of nodes and other boards only build new
+ * nodes along the seams between the copies.
+ *
+ * Nodes live in a hash table that never holds more than maxNodes of them: when it fills up
+ * during a jump, the jump is abandoned, every node the board does not need is dropped,
+ * and the jump is done again as two jumps of half the generations.
+ */
+import java.util.HashMap;
+
+public class HashLife implements LifeEngine {
+
+    // Default limit on the number of nodes kept at once
+    public static final int DEFAULT_MAX_NODES = 1 << 22;
+    // Largest single jump is 2^MAX_JUMP generations, keeps the tree small enough for long coordinates
+    private static final int MAX_JUMP = 60;
+    private static final int LEAF_LEVEL = 3; // Leaves are 8x8
+
+    /*
+     * Quadtree node. A level k node is a 2^k x 2^k square, level LEAF_LEVEL nodes hold their
+     * cells in bits and have no children. Nodes are only ever created through leaf() and
+     * join(), so two nodes with the same contents are the same object and children can be
+     * compared with ==.
+     */
+    private static final class Node {
+        final int level;
+        final Node nw, ne, sw, se;
+        final long bits; // Cells of a leaf, bit 8 * row + col
+        final long population; // Alive cells, stops at Long.MAX_VALUE for huge tiled nodes
+        final int hash;
+
+        Node result; // Center of this node 2^resultStep generations later
+        int resultStep = -1;
+        Node next; // Next node in the same bucket of the table
+        int mark; // Last collection that found this node in use
+
+        Node(long bits, int hash) {
+            this.level = LEAF_LEVEL;
+            this.nw = this.ne = this.sw = this.se = null;
+            this.bits = bits;
+            this.population = Long.bitCount(bits);
+            this.hash = hash;
+        }
+
+        Node(Node nw, Node ne, Node sw, Node se, int hash) {
+            this.level = nw.level + 1;
+            this.nw = nw;
+            this.ne = ne;
+            this.sw = sw;
+            this.se = se;
+            this.bits = 0;
+            this.population = add(add(nw.population, ne.population), add(sw.population, se.population));
+            this.hash = hash;
+        }
+
+        private static long add(long a, long b) {
+            long sum = a + b;
+            return (sum < 0) ? Long.MAX_VALUE : sum;
+        }
+    }
+
+    /*
+     * Thrown by the table when it is full in the middle of a jump that can still be split
+     */
+    private static final class CacheFull extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        CacheFull() {
+            super(null, null, false, false);
+        }
+    }
+
+    private static final CacheFull CACHE_FULL = new CacheFull();
+
+    private final int rows;
+    private final int cols;
+    private final int rootLevel; // Smallest level holding the whole board, at least LEAF_LEVEL
+    private Node root; // Its top left rows x cols cells are one copy of the tiling
+    private int originRow; // Cell (row,col) of the board is cell (row + originRow, col + originCol) of the tiling
+    private int originCol;
+    private int totalAliveCells;
+
+    private Node[] table = new Node[1 << 10]; // Hash-consing table, chained through Node.next
+    private int size;
+    private int maxNodes = DEFAULT_MAX_NODES;
+    private boolean limited; // Whether the table throws CACHE_FULL instead of growing past maxNodes
+    private int collections;
+    private HashMap<Long, Node> windows; // Squares of the tiling built during the current jump
+    private final int[] baseRows = new int[16]; // Scratch rows of the 16x16 node being stepped
+    private final int[] baseNext = new int[16];
+
+    /**
+     * Creates a HashLife engine holding a copy of a boolean[][] grid (true denotes an ALIVE cell)
+     *
+     * @param grid grid to copy
+     */
+    public HashLife(boolean[][] grid) {
+        rows = grid.length;
+        cols = grid[0].length;
+        int level = LEAF_LEVEL;
+        while ((1L << level) < Math.max(rows, cols))
+            level++;
+        rootLevel = level;
+        root = build(grid, level, 0, 0);
+        totalAliveCells = (int) root.population;
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    public int getCols() {
+        return cols;
+    }
+
+    public boolean getCellState(int row, int col) {
+        return cellAt(Math.floorMod(row + originRow, rows), Math.floorMod(col + originCol, cols));
+    }
+
+    public int getTotalAliveCells() {
+        return totalAliveCells;
+    }
+
+    public boolean[][] toGrid() {
+        boolean[][] grid = new boolean[rows][cols];
+        visitAlive(root, 0, 0, (row, col) -> grid[row][col] = true);
+        return grid;
+    }
+
+    /**
+     * Hashes the alive cells by walking the tree, so empty parts of the board cost nothing
+     */
+    public long stateHash() {
+        long[] hash = new long[1];
+        visitAlive(root, 0, 0, (row, col) -> hash[0] ^= LifeEngine.zobrist((long) row * cols + col));
+        return hash[0];
+    }
+
+    /**
+     * Returns the number of nodes in the table
+     *
+     * @return int for the node count
+     */
+    public int getNodeCount() {
+        return size;
+    }
+
+    /**
+     * Returns how many times nodes the board no longer needs were dropped to stay under
+     * the limit
+     *
+     * @return int for the number of collections
+     */
+    public int getCollections() {
+        return collections;
+    }
+
+    /**
+     * Sets how many nodes may be kept at once. When the table fills up during a jump,
+     * the nodes the board does not need are dropped and the jump is done again in two
+     * halves, so the table never grows past the limit. The exception is a jump of a single
+     * generation, which can't be split, or a board whose own tree takes more than half of
+     * the limit; those go over it rather than fail.
+     *
+     * @param maxNodes maximum number of nodes
+     */
+    public void setMaxNodes(int maxNodes) {
+        if (maxNodes < 1)
+            throw new IllegalArgumentException("Cache must hold at least one node");
+        this.maxNodes = maxNodes;
+    }
+
+    public void nextGeneration() {
+        advance(1);
+    }
+
+    public void nextGeneration(int n) {
+        advance(n);
+    }
+
+    /**
+     * Advances the board by n generations. Every set bit of n is one jump of 2^j
+     * generations, so n only costs O(log n) jumps.
+     *
+     * @param n number of generations to compute
+     */
+    public void advance(long n) {
+        if (n < 0)
+            throw new IllegalArgumentException("Cannot go back in generations");
+        while (n > 0 && totalAliveCells > 0) {
+            int j = Math.min(63 - Long.numberOfLeadingZeros(n), MAX_JUMP);
+            jump(j);
+            n -= 1L << j;
+        }
+    }
+
+    /**
+     * Advances the board by 2^j generations
+     *
+     * @param j log2 of the number of generations
+     */
+    private void jump(int j) {
+        // The result of a level k node is its center half, which must still hold a whole board
+        int level = Math.max(j + 2, LEAF_LEVEL + 1);
+        while ((1L << (level - 1)) < Math.max(rows, cols))
+            level++;
+
+        // A jump starts with at least half of the table free, unless the board alone takes more
+        if (size >= maxNodes / 2)
+            collect();
+        limited = j > 0 && size < maxNodes / 2;
+        Node result = null;
+        try {
+            windows = new HashMap<Long, Node>();
+            result = step(window(level, 0, 0), j);
+        } catch (CacheFull e) {
+            // Handled below, once the table may grow again
+        } finally {
+            windows = null;
+            limited = false;
+        }
+        if (result == null) {
+            collect();
+            jump(j - 1);
+            jump(j - 1);
+            return;
+        }
+
+        // The result starts 2^(level-2) cells into the tiling on both axes, its top left
+        // corner holds a whole copy of the board again
+        long offset = 1L << (level - 2);
+        originRow = (int) Math.floorMod(originRow - offset % rows, (long) rows);
+        originCol = (int) Math.floorMod(originCol - offset % cols, (long) cols);
+        while (result.level > rootLevel)
+            result = result.nw;
+        root = result;
+        totalAliveCells = (int) population(root, 0, 0);
+    }
+
+    /**
+     * Drops every node the board does not need and forgets all results
+     */
+    private void collect() {
+        collections++;
+        mark(root);
+        Node[] old = table;
+        table = new Node[old.length];
+        size = 0;
+        for (Node bucket : old) {
+            Node node = bucket;
+            while (node != null) {
+                Node next = node.next;
+                if (node.mark == collections) {
+                    node.result = null;
+                    node.resultStep = -1;
+                    int i = index(node.hash);
+                    node.next = table[i];
+                    table[i] = node;
+                    size++;
+                }
+                node = next;
+            }
+        }
+    }
+
+    private void mark(Node node) {
+        if (node.mark == collections)
+            return;
+        node.mark = collections;
+        if (node.level > LEAF_LEVEL) {
+            mark(node.nw);
+            mark(node.ne);
+            mark(node.sw);
+            mark(node.se);
+        }
+    }
+
+    /**
+     * Builds the tree of a grid, cells past its edges are DEAD
+     */
+    private Node build(boolean[][] grid, int level, int row, int col) {
+        if (row >= rows || col >= cols)
+            return empty(level);
+        if (level == LEAF_LEVEL) {
+            long bits = 0;
+            for (int y = 0; y < 8 && row + y < rows; y++)
+                for (int x = 0; x < 8 && col + x < cols; x++)
+                    if (grid[row + y][col + x])
+                        bits |= 1L << (8 * y + x);
+            return leaf(bits);
+        }
+        int half = 1 << (level - 1);
+        return join(build(grid, level - 1, row, col), build(grid, level - 1, row, col + half),
+                build(grid, level - 1, row + half, col), build(grid, level - 1, row + half, col + half));
+    }
+
+    /**
+     * Builds the square of the tiling whose top left corner is at (row,col). Squares lying
+     * inside the board on the tree's own grid are taken from the tree as they are.
+     *
+     * @param level log2 of the side length of the square
+     * @param row   row of the top left corner, already reduced modulo rows
+     * @param col   column of the top left corner, already reduced modulo cols
+     * @return the node for the square
+     */
+    private Node window(int level, int row, int col) {
+        if (level == LEAF_LEVEL)
+            return leafAt(row, col);
+        if (level <= rootLevel) {
+            int size = 1 << level;
+            if (((row | col) & (size - 1)) == 0 && row + size <= rows && col + size <= cols)
+                return subtree(level, row, col);
+        }
+        Long key = ((long) level * rows + row) * cols + col;
+        Node node = windows.get(key);
+        if (node == null) {
+            long half = 1L << (level - 1);
+            int down = (int) ((row + half) % rows);
+            int right = (int) ((col + half) % cols);
+            node = join(window(level - 1, row, col), window(level - 1, row, right),
+                    window(level - 1, down, col), window(level - 1, down, right));
+            windows.put(key, node);
+        }
+        return node;
+    }
+
+    /**
+     * Builds the 8x8 square of the tiling at (row,col), shifting the bits of the four
+     * leaves it overlaps when it does not cross the edge of the board
+     */
+    private Node leafAt(int row, int col) {
+        int dr = row & 7, dc = col & 7;
+        if (row + 8 <= rows && col + 8 <= cols) {
+            if (dr == 0 && dc == 0)
+                return subtree(LEAF_LEVEL, row, col);
+            long nw = subtree(LEAF_LEVEL, row - dr, col - dc).bits;
+            long ne = (dc == 0) ? 0 : subtree(LEAF_LEVEL, row - dr, col - dc + 8).bits;
+            long sw = (dr == 0) ? 0 : subtree(LEAF_LEVEL, row - dr + 8, col - dc).bits;
+            long se = (dr == 0 || dc == 0) ? 0 : subtree(LEAF_LEVEL, row - dr + 8, col - dc + 8).bits;
+            long bits = 0;
+            for (int y = 0; y < 8; y++) {
+                int sy = dr + y;
+                long left = (sy < 8) ? nw : sw;
+                long right = (sy < 8) ? ne : se;
+                int shift = 8 * (sy & 7);
+                long line = ((left >>> shift) & 0xFF) | (((right >>> shift) & 0xFF) << 8);
+                bits |= ((line >>> dc) & 0xFF) << (8 * y);
+            }
+            return leaf(bits);
+        }
+        long bits = 0;
+        for (int y = 0; y < 8; y++)
+            for (int x = 0; x < 8; x++)
+                if (cellAt((row + y) % rows, (col + x) % cols))
+                    bits |= 1L << (8 * y + x);
+        return leaf(bits);
+    }
+
+    /**
+     * Returns the node of the tree at the given level whose top left corner is (row,col)
+     */
+    private Node subtree(int level, int row, int col) {
+        Node node = root;
+        for (int l = rootLevel; l > level; l--) {
+            int half = 1 << (l - 1);
+            if (row < half)
+                node = (col < half) ? node.nw : node.ne;
+            else
+                node = (col < half) ? node.sw : node.se;
+            row &= half - 1;
+            col &= half - 1;
+        }
+        return node;
+    }
+
+    /**
+     * Returns the state of the cell at (row,col) of the tree
+     */
+    private boolean cellAt(int row, int col) {
+        Node node = root;
+        for (int l = rootLevel; l > LEAF_LEVEL; l--) {
+            if (node.population == 0)
+                return false;
+            int half = 1 << (l - 1);
+            if (row < half)
+                node = (col < half) ? node.nw : node.ne;
+            else
+                node = (col < half) ? node.sw : node.se;
+            row &= half - 1;
+            col &= half - 1;
+        }
+        return ((node.bits >>> (8 * row + col)) & 1) != 0;
+    }
+
+    /**
+     * Counts the alive cells of a node of the tree that fall on the board
+     */
+    private long population(Node node, int row, int col) {
+        if (node.population == 0 || row >= rows || col >= cols)
+            return 0;
+        int size = 1 << node.level;
+        if (row + size <= rows && col + size <= cols)
+            return node.population;
+        if (node.level == LEAF_LEVEL) {
+            long mask = 0;
+            for (int y = 0; y < 8 && row + y < rows; y++)
+                mask |= ((1L << Math.min(8, cols - col)) - 1) << (8 * y);
+            return Long.bitCount(node.bits & mask);
+        }
+        int half = size / 2;
+        return population(node.nw, row, col) + population(node.ne, row, col + half)
+                + population(node.sw, row + half, col) + population(node.se, row + half, col + half);
+    }
+
+    private interface CellVisitor {
+        void alive(int row, int col);
+    }
+
+    /**
+     * Calls the visitor with the board position of every alive cell of a node of the tree
+     */
+    private void visitAlive(Node node, int row, int col, CellVisitor visitor) {
+        if (node.population == 0 || row >= rows || col >= cols)
+            return;
+        if (node.level == LEAF_LEVEL) {
+            long bits = node.bits;
+            while (bits != 0) {
+                int bit = Long.numberOfTrailingZeros(bits);
+                bits &= bits - 1;
+                int y = row + (bit >>> 3), x = col + (bit & 7);
+                if (y < rows && x < cols)
+                    visitor.alive(Math.floorMod(y - originRow, rows), Math.floorMod(x - originCol, cols));
+            }
+            return;
+        }
+        int half = 1 << (node.level - 1);
+        visitAlive(node.nw, row, col, visitor);
+        visitAlive(node.ne, row, col + half, visitor);
+        visitAlive(node.sw, row + half, col, visitor);
+        visitAlive(node.se, row + half, col + half, visitor);
+    }
+
+    private int index(int hash) {
+        return (hash ^ (hash >>> 16)) & (table.length - 1);
+    }
+
+    /**
+     * Returns the canonical leaf with the given cells
+     */
+    private Node leaf(long bits) {
+        int hash = (int) LifeEngine.zobrist(bits);
+        int i = index(hash);
+        for (Node node = table[i]; node != null; node = node.next)
+            if (node.level == LEAF_LEVEL && node.bits == bits)
+                return node;
+        return insert(new Node(bits, hash), i);
+    }
+
+    /**
+     * Returns the canonical node with the given children
+     */
+    private Node join(Node nw, Node ne, Node sw, Node se) {
+        int hash = ((nw.hash * 31 + ne.hash) * 31 + sw.hash) * 31 + se.hash + nw.level;
+        int i = index(hash);
+        for (Node node = table[i]; node != null; node = node.next)
+            if (node.nw == nw && node.ne == ne && node.sw == sw && node.se == se)
+                return node;
+        return insert(new Node(nw, ne, sw, se, hash), i);
+    }
+
+    private Node insert(Node node, int i) {
+        if (limited && size >= maxNodes)
+            throw CACHE_FULL;
+        node.next = table[i];
+        table[i] = node;
+        if (++size > table.length - (table.length >>> 2))
+            resize();
+        return node;
+    }
+
+    private void resize() {
+        Node[] old = table;
+        table = new Node[old.length * 2];
+        for (Node bucket : old) {
+            Node node = bucket;
+            while (node != null) {
+                Node next = node.next;
+                int i = index(node.hash);
+                node.next = table[i];
+                table[i] = node;
+                node = next;
+            }
+        }
+    }
+
+    /**
+     * Returns an all DEAD node of the given level
+     */
+    private Node empty(int level) {
+        Node node = leaf(0);
+        for (int l = LEAF_LEVEL; l < level; l++)
+            node = join(node, node, node, node);
+        return node;
+    }
+
+    /**
+     * Returns the center half of a node, without advancing it
+     */
+    private Node center(Node n) {
+        if (n.level == LEAF_LEVEL + 1)
+            return leaf(centerBits(rows16(n, baseRows)));
+        return join(n.nw.se, n.ne.sw, n.sw.ne, n.se.nw);
+    }
+
+    /**
+     * Returns the node straddling the border between a west and an east node
+     */
+    private Node centerHorizontal(Node w, Node e) {
+        return join(w.ne, e.nw, w.se, e.sw);
+    }
+
+    /**
+     * Returns the node straddling the border between a north and a south node
+     */
+    private Node centerVertical(Node n, Node s) {
+        return join(n.sw, n.se, s.nw, s.ne);
+    }
+
+    /**
+     * Computes the center half of a node 2^j generations later
+     *
+     * @param n node of level k >= 4
+     * @param j log2 of the number of generations, at most k - 2
+     * @return node of level k - 1
+     */
+    private Node step(Node n, int j) {
+        if (n.population == 0)
+            return empty(n.level - 1);
+        if (n.resultStep == j)
+            return n.result;
+
+        Node result;
+        if (n.level == LEAF_LEVEL + 1) {
+            result = stepBase(n, 1 << j);
+        } else {
+            Node n00 = n.nw, n01 = centerHorizontal(n.nw, n.ne), n02 = n.ne;
+            Node n10 = centerVertical(n.nw, n.sw), n11 = center(n), n12 = centerVertical(n.ne, n.se);
+            Node n20 = n.sw, n21 = centerHorizontal(n.sw, n.se), n22 = n.se;
+
+            Node r00, r01, r02, r10, r11, r12, r20, r21, r22;
+            int rest;
+            if (j == n.level - 2) {
+                // Full speed: advance half of the way here and the other half below
+                r00 = step(n00, j - 1); r01 = step(n01, j - 1); r02 = step(n02, j - 1);
+                r10 = step(n10, j - 1); r11 = step(n11, j - 1); r12 = step(n12, j - 1);
+                r20 = step(n20, j - 1); r21 = step(n21, j - 1); r22 = step(n22, j - 1);
+                rest = j - 1;
+            } else {
+                // Fewer generations than the node allows: shrink without advancing, then advance all of j
+                r00 = center(n00); r01 = center(n01); r02 = center(n02);
+                r10 = center(n10); r11 = center(n11); r12 = center(n12);
+                r20 = center(n20); r21 = center(n21); r22 = center(n22);
+                rest = j;
+            }
+            result = join(step(join(r00, r01, r10, r11), rest), step(join(r01, r02, r11, r12), rest),
+                    step(join(r10, r11, r20, r21), rest), step(join(r11, r12, r21, r22), rest));
+        }
+        n.result = result;
+        n.resultStep = j;
+        return result;
+    }
+
+    /**
+     * Computes the center 8x8 of a 16x16 node some generations later, at most 4, on its
+     * rows as 16-bit masks. Cells outside the node count as DEAD, which only reaches one
+     * cell further in every generation, so the center is still exact.
+     */
+    private Node stepBase(Node n, int generations) {
+        int[] rows = rows16(n, baseRows);
+        int[] next = baseNext;
+        for (int g = 0; g < generations; g++) {
+            int above = 0, mid = rows[0];
+            for (int y = 0; y < 16; y++) {
+                int below = (y < 15) ? rows[y + 1] : 0;
+                // Add up the eight neighbor masks bit by bit, counts of 8 wrap to 0 which is DEAD anyway
+                int ones = 0, twos = 0, fours = 0, carry;
+                carry = ones & (above << 1); ones ^= above << 1; fours ^= twos & carry; twos ^= carry;
+                carry = ones & above; ones ^= above; fours ^= twos & carry; twos ^= carry;
+                carry = ones & (above >>> 1); ones ^= above >>> 1; fours ^= twos & carry; twos ^= carry;
+                carry = ones & (mid << 1); ones ^= mid << 1; fours ^= twos & carry; twos ^= carry;
+                carry = ones & (mid >>> 1); ones ^= mid >>> 1; fours ^= twos & carry; twos ^= carry;
+                carry = ones & (below << 1); ones ^= below << 1; fours ^= twos & carry; twos ^= carry;
+                carry = ones & below; ones ^= below; fours ^= twos & carry; twos ^= carry;
+                carry = ones & (below >>> 1); ones ^= below >>> 1; fours ^= twos & carry; twos ^= carry;
+                next[y] = twos & ~fours & (ones | mid) & 0xFFFF;
+                above = mid;
+                mid = below;
+            }
+            int[] temp = rows;
+            rows = next;
+            next = temp;
+        }
+        return leaf(centerBits(rows));
+    }
+
+    /**
+     * Fills rows with the rows of a 16x16 node, bit x of row y is column x
+     */
+    private static int[] rows16(Node n, int[] rows) {
+        for (int y = 0; y < 8; y++) {
+            int shift = 8 * y;
+            rows[y] = (int) ((n.nw.bits >>> shift) & 0xFF) | (int) ((n.ne.bits >>> shift) & 0xFF) << 8;
+            rows[y + 8] = (int) ((n.sw.bits >>> shift) & 0xFF) | (int) ((n.se.bits >>> shift) & 0xFF) << 8;
+        }
+        return rows;
+    }
+
+    /**
+     * Returns the middle 8x8 of 16 rows of 16 cells as leaf bits
+     */
+    private static long centerBits(int[] rows) {
+        long bits = 0;
+        for (int y = 0; y < 8; y++)
+            bits |= (long) ((rows[y + 4] >>> 4) & 0xFF) << (8 * y);
+        return bits;
+    }
+}
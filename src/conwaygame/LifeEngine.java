@@ -0,0 +1,102 @@
+package conwaygame;
+/*
+ * Interface for the alternate backends that GameOfLife can run its board on.
+ * Every engine follows the same rules and the same toroidal wraparound as
+ * GameOfLife.numOfAliveNeighbors(), so switching backends never changes results.
+ */
+public interface LifeEngine {
+
+    /**
+     * Returns the number of rows in the board
+     * 
+     * @return int for number of rows
+     */
+    int getRows();
+
+    /**
+     * Returns the number of columns in the board
+     * 
+     * @return int for number of columns
+     */
+    int getCols();
+
+    /**
+     * Returns the status of the cell at (row,col): true for ALIVE, false for DEAD
+     * 
+     * @param row row position of the cell
+     * @param col column position of the cell
+     * @return state of the cell
+     */
+    boolean getCellState(int row, int col);
+
+    /**
+     * Returns the number of alive cells on the board
+     * 
+     * @return int for total number of alive cells
+     */
+    int getTotalAliveCells();
+
+    /**
+     * Advances the board by one generation
+     */
+    void nextGeneration();
+
+    /**
+     * Advances the board by n generations
+     * 
+     * @param n number of generations to compute
+     */
+    default void nextGeneration(int n) {
+        for (int i = 0; i < n; i++)
+            nextGeneration();
+    }
+
+    /**
+     * Copies the board into a new boolean[][] (true denotes an ALIVE cell)
+     * 
+     * @return boolean[][] snapshot of the current generation
+     */
+    boolean[][] toGrid();
+
+    /**
+     * Returns a 64-bit hash of the current generation, used to notice when a board
+     * repeats itself. Equal boards always hash the same within one engine, different
+     * boards almost never do. This version XORs zobrist() over every alive cell,
+     * engines override it with something that does not visit every cell.
+     * 
+     * @return hash of the alive cells
+     */
+    default long stateHash() {
+        long hash = 0;
+        for (int i = 0; i < getRows(); i++)
+            for (int j = 0; j < getCols(); j++)
+                if (getCellState(i, j))
+                    hash ^= zobrist((long) i * getCols() + j);
+        return hash;
+    }
+
+    /**
+     * Asks the engine to keep stateHash() up to date while it steps, by XORing in only
+     * what changed, so that reading it every generation does not cost a pass over the
+     * board. Tracking makes every step a little slower, so it is off until asked for.
+     * This version does nothing, engines without tracking compute stateHash() on demand.
+     * 
+     * @param on true to start tracking from the current generation, false to stop
+     */
+    default void setHashTracking(boolean on) {
+    }
+
+    /**
+     * Returns the Zobrist key of a cell. Keys are mixed from the cell index instead of
+     * read from a table, so huge boards do not need 8 bytes of keys per cell.
+     * 
+     * @param cell row * cols + col
+     * @return pseudo-random 64-bit key for the cell
+     */
+    static long zobrist(long cell) {
+        long z = cell + 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
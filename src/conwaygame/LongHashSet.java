@@ -0,0 +1,132 @@
+package conwaygame;
+/*
+ * Open addressing hash set of non-negative longs. Keys are stored in a plain long[]
+ * (EMPTY marks a free slot) so nothing is boxed and a lookup is a few array reads.
+ */
+import java.util.Arrays;
+
+public class LongHashSet {
+
+    public static final long EMPTY = -1L;
+    private static final int MIN_CAPACITY = 16;
+
+    private long[] keys;
+    private int mask;
+    private int size;
+
+    public LongHashSet() {
+        this(MIN_CAPACITY);
+    }
+
+    /**
+     * Creates a set that can hold expectedSize keys without growing
+     * 
+     * @param expectedSize number of keys expected
+     */
+    public LongHashSet(int expectedSize) {
+        allocate(capacityFor(expectedSize));
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Adds a key
+     * 
+     * @param key non-negative key to add
+     * @return true if the key was not already in the set
+     */
+    public boolean add(long key) {
+        int i = slot(key);
+        while (keys[i] != EMPTY) {
+            if (keys[i] == key)
+                return false;
+            i = (i + 1) & mask;
+        }
+        keys[i] = key;
+        if (++size * 2 > keys.length)
+            rehash(keys.length * 2);
+        return true;
+    }
+
+    public boolean contains(long key) {
+        int i = slot(key);
+        while (keys[i] != EMPTY) {
+            if (keys[i] == key)
+                return true;
+            i = (i + 1) & mask;
+        }
+        return false;
+    }
+
+    /**
+     * Removes every key. The table shrinks back if it is far bigger than the set was,
+     * so clearing stays proportional to the number of keys.
+     */
+    public void clear() {
+        int wanted = capacityFor(size);
+        if (keys.length > 4 * wanted)
+            allocate(wanted);
+        else
+            Arrays.fill(keys, EMPTY);
+        size = 0;
+    }
+
+    /**
+     * Returns the number of slots, for iterating with keyAt()
+     * 
+     * @return int for table capacity
+     */
+    public int capacity() {
+        return keys.length;
+    }
+
+    /**
+     * Returns the key in a slot
+     * 
+     * @param slot index from 0 to capacity() - 1
+     * @return the key, or EMPTY if the slot is free
+     */
+    public long keyAt(int slot) {
+        return keys[slot];
+    }
+
+    private int slot(long key) {
+        return mix(key) & mask;
+    }
+
+    /**
+     * Spreads the bits of a key so that neighboring keys land in different slots
+     */
+    static int mix(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    static int capacityFor(int expectedSize) {
+        int capacity = MIN_CAPACITY;
+        while (capacity < 2L * expectedSize)
+            capacity <<= 1;
+        return capacity;
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        Arrays.fill(keys, EMPTY);
+        mask = capacity - 1;
+    }
+
+    private void rehash(int capacity) {
+        long[] old = keys;
+        allocate(capacity);
+        for (long key : old) {
+            if (key != EMPTY) {
+                int i = slot(key);
+                while (keys[i] != EMPTY)
+                    i = (i + 1) & mask;
+                keys[i] = key;
+            }
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package conwaygame;
+/*
+ * Open addressing hash map from non-negative longs to ints. Same layout as LongHashSet
+ * with a parallel int[] of values, so nothing is boxed.
+ */
+import java.util.Arrays;
+
+public class LongIntHashMap {
+
+    public static final long EMPTY = LongHashSet.EMPTY;
+
+    private long[] keys;
+    private int[] values;
+    private int mask;
+    private int size;
+
+    public LongIntHashMap() {
+        this(0);
+    }
+
+    /**
+     * Creates a map that can hold expectedSize entries without growing
+     * 
+     * @param expectedSize number of entries expected
+     */
+    public LongIntHashMap(int expectedSize) {
+        allocate(LongHashSet.capacityFor(expectedSize));
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the value for a key
+     * 
+     * @param key          non-negative key to look up
+     * @param defaultValue value returned when the key is missing
+     * @return the value stored for the key, or defaultValue
+     */
+    public int get(long key, int defaultValue) {
+        int i = LongHashSet.mix(key) & mask;
+        while (keys[i] != EMPTY) {
+            if (keys[i] == key)
+                return values[i];
+            i = (i + 1) & mask;
+        }
+        return defaultValue;
+    }
+
+    /**
+     * Stores a value for a key, replacing any earlier value
+     * 
+     * @param key   non-negative key
+     * @param value value to store
+     */
+    public void put(long key, int value) {
+        int i = insert(key); // may grow the table, so only read values afterwards
+        values[i] = value;
+    }
+
+    /**
+     * Adds delta to the value of a key, a missing key counts as 0
+     * 
+     * @param key   non-negative key
+     * @param delta amount to add
+     */
+    public void addTo(long key, int delta) {
+        int i = insert(key);
+        values[i] += delta;
+    }
+
+    /**
+     * Removes every entry, shrinking the table if it is far bigger than the map was
+     */
+    public void clear() {
+        int wanted = LongHashSet.capacityFor(size);
+        if (keys.length > 4 * wanted)
+            allocate(wanted);
+        else
+            Arrays.fill(keys, EMPTY);
+        size = 0;
+    }
+
+    /**
+     * Returns the number of slots, for iterating with keyAt() and valueAt()
+     * 
+     * @return int for table capacity
+     */
+    public int capacity() {
+        return keys.length;
+    }
+
+    /**
+     * Returns the key in a slot
+     * 
+     * @param slot index from 0 to capacity() - 1
+     * @return the key, or EMPTY if the slot is free
+     */
+    public long keyAt(int slot) {
+        return keys[slot];
+    }
+
+    /**
+     * Returns the value in a slot, only meaningful when keyAt(slot) is not EMPTY
+     * 
+     * @param slot index from 0 to capacity() - 1
+     * @return the value
+     */
+    public int valueAt(int slot) {
+        return values[slot];
+    }
+
+    // Finds the slot of a key, claiming a free one (value 0) if the key is missing
+    private int insert(long key) {
+        int i = LongHashSet.mix(key) & mask;
+        while (keys[i] != EMPTY) {
+            if (keys[i] == key)
+                return i;
+            i = (i + 1) & mask;
+        }
+        if ((size + 1) * 2 > keys.length) {
+            rehash(keys.length * 2);
+            return insert(key);
+        }
+        keys[i] = key;
+        values[i] = 0;
+        size++;
+        return i;
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new int[capacity];
+        Arrays.fill(keys, EMPTY);
+        mask = capacity - 1;
+    }
+
+    private void rehash(int capacity) {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        allocate(capacity);
+        for (int j = 0; j < oldKeys.length; j++) {
+            if (oldKeys[j] != EMPTY) {
+                int i = LongHashSet.mix(oldKeys[j]) & mask;
+                while (keys[i] != EMPTY)
+                    i = (i + 1) & mask;
+                keys[i] = oldKeys[j];
+                values[i] = oldValues[j];
+            }
+        }
+    }
+}
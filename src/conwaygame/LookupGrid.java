@@ -0,0 +1,124 @@
+package conwaygame;
+/*
+ * Game of Life board evaluated through a rule table. The 3x3 neighborhood of a cell is
+ * packed into a 9 bit index (three bits per column, left column highest) and RULE holds
+ * the next state for every one of the 512 neighborhoods. Walking along a row the index
+ * slides one column to the right each cell, so a cell costs one column read and one lookup.
+ */
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+
+public class LookupGrid implements LifeEngine {
+
+    // Next state for each 3x3 neighborhood, the center cell is bit 4 of the index
+    private static final byte[] RULE = new byte[512];
+
+    static {
+        for (int i = 0; i < 512; i++) {
+            int alive = Integer.bitCount(i & ~(1 << 4));
+            boolean center = (i & (1 << 4)) != 0;
+            RULE[i] = (byte) ((alive == 3 || (alive == 2 && center)) ? 1 : 0);
+        }
+    }
+
+    private static final VarHandle EIGHT_CELLS = MethodHandles.byteArrayViewVarHandle(long[].class,
+            ByteOrder.LITTLE_ENDIAN);
+
+    private final int rows;
+    private final int cols;
+    private byte[] cells; // 1 for ALIVE, 0 for DEAD, row-major
+    private byte[] next; // Scratch buffer the next generation is written into, swapped each step
+    private int totalAliveCells;
+
+    /**
+     * Creates a copy of a boolean[][] grid (true denotes an ALIVE cell)
+     *
+     * @param grid grid to copy
+     */
+    public LookupGrid(boolean[][] grid) {
+        rows = grid.length;
+        cols = grid[0].length;
+        cells = new byte[rows * cols];
+        next = new byte[rows * cols];
+        for (int i = 0; i < rows; i++) {
+            for (int j = 0; j < cols; j++) {
+                if (grid[i][j]) {
+                    cells[i * cols + j] = 1;
+                    totalAliveCells++;
+                }
+            }
+        }
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    public int getCols() {
+        return cols;
+    }
+
+    public boolean getCellState(int row, int col) {
+        return cells[row * cols + col] != 0;
+    }
+
+    public int getTotalAliveCells() {
+        return totalAliveCells;
+    }
+
+    /**
+     * Advances the board by one generation. Rows and columns wrap around like
+     * GameOfLife.numOfAliveNeighbors(), on boards one or two cells wide the same cell
+     * simply shows up more than once in the neighborhood.
+     */
+    public void nextGeneration() {
+        int count = 0;
+        for (int r = 0; r < rows; r++) {
+            int up = ((r == 0) ? rows - 1 : r - 1) * cols;
+            int mid = r * cols;
+            int down = ((r == rows - 1) ? 0 : r + 1) * cols;
+
+            int index = (column(up, mid, down, cols - 1) << 3) | column(up, mid, down, 0);
+            for (int c = 0; c < cols; c++) {
+                int right = (c == cols - 1) ? 0 : c + 1;
+                index = ((index << 3) | column(up, mid, down, right)) & 511;
+                byte state = RULE[index];
+                next[mid + c] = state;
+                count += state;
+            }
+        }
+        byte[] temp = cells;
+        cells = next;
+        next = temp;
+        totalAliveCells = count;
+    }
+
+    /**
+     * Reads the cells eight at a time as one long and hashes the non-empty ones the way
+     * PackedGrid hashes its words, so a pass costs a fraction of a step. Every cell is
+     * stepped each generation anyway, so keeping the hash up to date would cost more.
+     */
+    public long stateHash() {
+        long hash = 0;
+        int i = 0;
+        for (; i + 8 <= cells.length; i += 8)
+            hash ^= PackedGrid.wordHash(i, (long) EIGHT_CELLS.get(cells, i));
+        for (; i < cells.length; i++)
+            hash ^= PackedGrid.wordHash(i, cells[i]);
+        return hash;
+    }
+
+    public boolean[][] toGrid() {
+        boolean[][] grid = new boolean[rows][cols];
+        for (int i = 0; i < rows; i++)
+            for (int j = 0; j < cols; j++)
+                grid[i][j] = cells[i * cols + j] != 0;
+        return grid;
+    }
+
+    // Three bits for column c: the row above, the row itself, the row below
+    private int column(int up, int mid, int down, int c) {
+        return (cells[up + c] << 2) | (cells[mid + c] << 1) | cells[down + c];
+    }
+}
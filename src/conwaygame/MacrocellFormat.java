@@ -0,0 +1,472 @@
+package conwaygame;
+/*
+ * Reads and writes the macrocell format Golly uses for huge patterns. The board is stored
+ * as a quadtree in which equal squares are written only once, so empty space costs nothing
+ * and repeated structures (rows of guns, tiled soups) cost one line no matter how often
+ * they appear.
+ *
+ * After the "[M2]" line and # lines ("#R B3/S23:T<cols>,<rows>" gives the rule and the
+ * size of the torus, "#G <n>" the generation) every line is a node, numbered from 1:
+ *   - an 8x8 leaf: its rows as . for DEAD and * for ALIVE cells, each ending with $,
+ *     with cells left out at the end of a row DEAD
+ *   - a bigger square: "<level> <nw> <ne> <sw> <se>", a square of 2^level cells per side
+ *     made of the four earlier nodes, 0 for an empty quarter
+ * The last node is the whole pattern, centered on the origin like Golly centers a torus:
+ * board cell (0, 0) is at (-cols / 2, -rows / 2). A file without a :T size gets the
+ * smallest board holding all of its ALIVE cells.
+ */
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+
+public class MacrocellFormat {
+
+    public static final String HEADER = "[M2] (GameOfLife)";
+    private static final int LEAF_LEVEL = 3; // Leaves are 8x8, one long
+    private static final int MAX_LEVEL = 62; // Squares past this do not fit in long coordinates
+
+    private final boolean[][] grid;
+    private final long generation;
+
+    private MacrocellFormat(boolean[][] grid, long generation) {
+        this.grid = grid;
+        this.generation = generation;
+    }
+
+    /**
+     * Returns the cells that were read
+     *
+     * @return boolean[][] grid, true denotes an ALIVE cell
+     */
+    public boolean[][] getGrid() {
+        return grid;
+    }
+
+    /**
+     * Returns the generation given by the #G line, 0 if there was none
+     *
+     * @return long for the generation number
+     */
+    public long getGeneration() {
+        return generation;
+    }
+
+    /**
+     * Reads a macrocell file
+     *
+     * @param file name of the file
+     * @return MacrocellFormat holding the grid and its generation
+     * @throws IOException if the file cannot be read, is malformed, uses another rule,
+     *                     or is too big to fit in a boolean[][] grid
+     */
+    public static MacrocellFormat read(String file) throws IOException {
+        try (InputStream in = new FileInputStream(file)) {
+            return read(in);
+        }
+    }
+
+    /**
+     * Reads a macrocell pattern from a stream, which is not closed
+     *
+     * @param in stream holding the pattern
+     * @return MacrocellFormat holding the grid and its generation
+     * @throws IOException if the stream cannot be read, is malformed, uses another rule,
+     *                     or is too big to fit in a boolean[][] grid
+     */
+    public static MacrocellFormat read(InputStream in) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.US_ASCII));
+        int rows = -1, cols = -1;
+        long generation = 0;
+        Nodes nodes = new Nodes();
+        int lineNumber = 0;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            if (line.isEmpty())
+                continue;
+            char first = line.charAt(0);
+            if (first == '[') {
+                if (lineNumber != 1 || !line.startsWith("[M2]"))
+                    throw error(lineNumber, "expected the [M2] header but found \"" + line + "\"");
+            } else if (lineNumber == 1) {
+                throw error(lineNumber, "expected the [M2] header but found \"" + line + "\"");
+            } else if (first == '#') {
+                String value = line.substring(Math.min(2, line.length())).trim();
+                if (line.startsWith("#R")) {
+                    int torus = value.indexOf(":T");
+                    String rule = (torus < 0) ? value : value.substring(0, torus);
+                    if (!RleFormat.isLifeRule(rule))
+                        throw error(lineNumber, "only the rule " + RleFormat.RULE + " is supported, not \"" + value + "\"");
+                    if (torus >= 0) {
+                        String[] size = value.substring(torus + 2).split(",");
+                        if (size.length != 2)
+                            throw error(lineNumber, "expected the size like :T<cols>,<rows> but found \"" + value + "\"");
+                        cols = parseSize(size[0], lineNumber);
+                        rows = parseSize(size[1], lineNumber);
+                    }
+                } else if (line.startsWith("#G")) {
+                    try {
+                        generation = Long.parseLong(value);
+                    } catch (NumberFormatException e) {
+                        throw error(lineNumber, "expected the generation but found \"" + value + "\"");
+                    }
+                }
+            } else if (first == '.' || first == '*' || first == '$') {
+                nodes.addLeaf(parseLeaf(line, lineNumber));
+            } else {
+                parseNode(line, lineNumber, nodes);
+            }
+        }
+        return new MacrocellFormat(nodes.toGrid(rows, cols), generation);
+    }
+
+    /**
+     * Writes a grid as a macrocell file
+     *
+     * @param grid       grid to write, true denotes an ALIVE cell
+     * @param generation generation the board is at
+     * @param file       name of the file
+     * @throws IOException if the file cannot be written
+     */
+    public static void write(boolean[][] grid, long generation, String file) throws IOException {
+        try (Writer out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.US_ASCII))) {
+            write(grid, generation, out);
+        }
+    }
+
+    /**
+     * Writes a grid as a macrocell pattern, the writer is flushed but not closed
+     *
+     * @param grid       grid to write, true denotes an ALIVE cell
+     * @param generation generation the board is at
+     * @param out        where the pattern goes
+     * @return number of distinct nodes written
+     * @throws IOException if writing fails
+     */
+    public static int write(boolean[][] grid, long generation, Writer out) throws IOException {
+        int rows = grid.length;
+        int cols = grid[0].length;
+        out.write(HEADER + "\n");
+        out.write("#R " + RleFormat.RULE + ":T" + cols + "," + rows + "\n");
+        if (generation != 0)
+            out.write("#G " + generation + "\n");
+
+        // Smallest square that holds the board centered like Golly centers a torus
+        int level = LEAF_LEVEL;
+        while ((1L << (level - 1)) < Math.max(rows - rows / 2, cols - cols / 2))
+            level++;
+        long half = 1L << (level - 1);
+        Builder builder = new Builder(grid, half - rows / 2, half - cols / 2, out);
+        builder.build(level, 0, 0);
+        out.flush();
+        return builder.count;
+    }
+
+    /**
+     * Builds the quadtree of a grid bottom-up, writing every node the first time it is
+     * made, so children always come before the nodes that use them
+     */
+    private static class Builder {
+        private final boolean[][] grid;
+        private final long top; // Square coordinates of cell (0, 0)
+        private final long left;
+        private final Writer out;
+        private final HashMap<Key, Integer> ids = new HashMap<Key, Integer>(); // Hash-consing cache
+        private final StringBuilder line = new StringBuilder();
+        int count;
+
+        Builder(boolean[][] grid, long top, long left, Writer out) {
+            this.grid = grid;
+            this.top = top;
+            this.left = left;
+            this.out = out;
+        }
+
+        /**
+         * Returns the id of the square of 2^level cells per side at (y, x), 0 if it is empty
+         */
+        int build(int level, long y, long x) throws IOException {
+            long size = 1L << level;
+            if (y + size <= top || x + size <= left || y >= top + grid.length || x >= left + grid[0].length)
+                return 0;
+            Key key;
+            if (level == LEAF_LEVEL) {
+                long bits = leaf(y - top, x - left);
+                if (bits == 0)
+                    return 0;
+                key = new Key(level, bits, 0);
+            } else {
+                long half = size >>> 1;
+                int nw = build(level - 1, y, x);
+                int ne = build(level - 1, y, x + half);
+                int sw = build(level - 1, y + half, x);
+                int se = build(level - 1, y + half, x + half);
+                if ((nw | ne | sw | se) == 0)
+                    return 0;
+                key = new Key(level, ((long) nw << 32) | ne, ((long) sw << 32) | se);
+            }
+            Integer id = ids.get(key);
+            if (id != null)
+                return id;
+            ids.put(key, ++count);
+            writeNode(key);
+            return count;
+        }
+
+        // Bit 8 * r + c is the cell r rows and c columns into the leaf at board (row, col)
+        private long leaf(long row, long col) {
+            long bits = 0;
+            for (int r = 0; r < 8; r++) {
+                long i = row + r;
+                if (i < 0 || i >= grid.length)
+                    continue;
+                boolean[] cells = grid[(int) i];
+                for (int c = 0; c < 8; c++) {
+                    long j = col + c;
+                    if (j >= 0 && j < cells.length && cells[(int) j])
+                        bits |= 1L << (8 * r + c);
+                }
+            }
+            return bits;
+        }
+
+        private void writeNode(Key key) throws IOException {
+            line.setLength(0);
+            if (key.level == LEAF_LEVEL) {
+                for (int r = 0; r < 8; r++) {
+                    int row = (int) (key.a >>> (8 * r)) & 0xFF;
+                    for (int c = 0; c < 32 - Integer.numberOfLeadingZeros(row); c++)
+                        line.append(((row >>> c) & 1) != 0 ? '*' : '.');
+                    line.append('$');
+                }
+            } else {
+                line.append(key.level).append(' ').append(key.a >>> 32).append(' ').append(key.a & 0xFFFFFFFFL)
+                        .append(' ').append(key.b >>> 32).append(' ').append(key.b & 0xFFFFFFFFL);
+            }
+            line.append('\n');
+            out.append(line);
+        }
+    }
+
+    /**
+     * A leaf's bits, or an inner node's four child ids packed two to a long
+     */
+    private static final class Key {
+        final int level;
+        final long a, b;
+
+        Key(int level, long a, long b) {
+            this.level = level;
+            this.a = a;
+            this.b = b;
+        }
+
+        @Override
+        public int hashCode() {
+            return LongHashSet.mix(a * 31 + b) ^ level;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key))
+                return false;
+            Key k = (Key) o;
+            return level == k.level && a == k.a && b == k.b;
+        }
+    }
+
+    /**
+     * The nodes of a file as they are read, with the bounding box of the ALIVE cells of
+     * every node in its own coordinates (empty nodes have min > max)
+     */
+    private static class Nodes {
+        int count;
+        int[] level = new int[16];
+        long[] leaf = new long[16]; // Bits of a leaf
+        int[] children = new int[64]; // nw, ne, sw, se of an inner node
+        long[] minY = new long[16], minX = new long[16], maxY = new long[16], maxX = new long[16];
+
+        Nodes() {
+            level[0] = -1; // Node 0 is the empty square of any level
+            minY[0] = minX[0] = Long.MAX_VALUE;
+            maxY[0] = maxX[0] = Long.MIN_VALUE;
+        }
+
+        void addLeaf(long bits) {
+            int id = add(LEAF_LEVEL);
+            leaf[id] = bits;
+            minY[id] = minX[id] = Long.MAX_VALUE;
+            maxY[id] = maxX[id] = Long.MIN_VALUE;
+            for (int r = 0; r < 8; r++) {
+                int row = (int) (bits >>> (8 * r)) & 0xFF;
+                if (row == 0)
+                    continue;
+                minY[id] = Math.min(minY[id], r);
+                maxY[id] = r;
+                minX[id] = Math.min(minX[id], Integer.numberOfTrailingZeros(row));
+                maxX[id] = Math.max(maxX[id], 31 - Integer.numberOfLeadingZeros(row));
+            }
+        }
+
+        void addNode(int lev, int nw, int ne, int sw, int se) {
+            int id = add(lev);
+            long half = 1L << (lev - 1);
+            int[] quarter = { nw, ne, sw, se };
+            minY[id] = minX[id] = Long.MAX_VALUE;
+            maxY[id] = maxX[id] = Long.MIN_VALUE;
+            for (int q = 0; q < 4; q++) {
+                int child = quarter[q];
+                children[4 * id + q] = child;
+                if (maxY[child] < minY[child])
+                    continue;
+                long dy = (q >= 2) ? half : 0;
+                long dx = ((q & 1) != 0) ? half : 0;
+                minY[id] = Math.min(minY[id], minY[child] + dy);
+                minX[id] = Math.min(minX[id], minX[child] + dx);
+                maxY[id] = Math.max(maxY[id], maxY[child] + dy);
+                maxX[id] = Math.max(maxX[id], maxX[child] + dx);
+            }
+        }
+
+        private int add(int lev) {
+            int id = ++count;
+            if (id == level.length) {
+                int capacity = level.length * 2;
+                level = Arrays.copyOf(level, capacity);
+                leaf = Arrays.copyOf(leaf, capacity);
+                children = Arrays.copyOf(children, capacity * 4);
+                minY = Arrays.copyOf(minY, capacity);
+                minX = Arrays.copyOf(minX, capacity);
+                maxY = Arrays.copyOf(maxY, capacity);
+                maxX = Arrays.copyOf(maxX, capacity);
+            }
+            level[id] = lev;
+            return id;
+        }
+
+        /**
+         * Paints the last node into a board, of the given size or else just big enough
+         */
+        boolean[][] toGrid(int rows, int cols) throws IOException {
+            int root = count;
+            boolean empty = root == 0 || maxY[root] < minY[root];
+            long half = (root == 0) ? 0 : 1L << (level[root] - 1);
+            long top, left; // Square coordinates of board cell (0, 0)
+            if (rows == -1) {
+                if (empty) {
+                    rows = cols = 1;
+                    top = left = 0;
+                } else {
+                    long height = maxY[root] - minY[root] + 1;
+                    long width = maxX[root] - minX[root] + 1;
+                    if (height > Integer.MAX_VALUE || width > Integer.MAX_VALUE || height * width > Integer.MAX_VALUE)
+                        throw new IOException("Pattern of " + width + " by " + height + " cells is too big for a board");
+                    rows = (int) height;
+                    cols = (int) width;
+                    top = minY[root];
+                    left = minX[root];
+                }
+            } else {
+                top = half - rows / 2;
+                left = half - cols / 2;
+                if (!empty && (minY[root] < top || minX[root] < left
+                        || maxY[root] >= top + rows || maxX[root] >= left + cols))
+                    throw new IOException("Pattern has ALIVE cells outside of its " + cols + " by " + rows + " torus");
+            }
+            boolean[][] grid = new boolean[rows][cols];
+            if (!empty)
+                paint(grid, root, -top, -left);
+            return grid;
+        }
+
+        // Paints node id with its top left corner at board (row, col)
+        private void paint(boolean[][] grid, int id, long row, long col) {
+            if (id == 0)
+                return;
+            if (level[id] == LEAF_LEVEL) {
+                long bits = leaf[id];
+                while (bits != 0) {
+                    int bit = Long.numberOfTrailingZeros(bits);
+                    grid[(int) (row + (bit >>> 3))][(int) (col + (bit & 7))] = true;
+                    bits &= bits - 1;
+                }
+                return;
+            }
+            long half = 1L << (level[id] - 1);
+            paint(grid, children[4 * id], row, col);
+            paint(grid, children[4 * id + 1], row, col + half);
+            paint(grid, children[4 * id + 2], row + half, col);
+            paint(grid, children[4 * id + 3], row + half, col + half);
+        }
+    }
+
+    private static long parseLeaf(String line, int lineNumber) throws IOException {
+        long bits = 0;
+        int r = 0, c = 0;
+        for (int i = 0; i < line.length(); i++) {
+            char ch = line.charAt(i);
+            if (ch == '$') {
+                r++;
+                c = 0;
+            } else if (ch == '.' || ch == '*') {
+                if (r >= 8 || c >= 8)
+                    throw error(lineNumber, "leaf has cells outside of 8 by 8");
+                if (ch == '*')
+                    bits |= 1L << (8 * r + c);
+                c++;
+            } else {
+                throw error(lineNumber, "unexpected \"" + ch + "\" in a leaf");
+            }
+        }
+        return bits;
+    }
+
+    private static void parseNode(String line, int lineNumber, Nodes nodes) throws IOException {
+        String[] parts = line.trim().split("\\s+");
+        if (parts.length != 5)
+            throw error(lineNumber, "expected \"<level> <nw> <ne> <sw> <se>\" but found \"" + line + "\"");
+        int[] values = new int[5];
+        for (int i = 0; i < 5; i++) {
+            try {
+                values[i] = Integer.parseInt(parts[i]);
+            } catch (NumberFormatException e) {
+                throw error(lineNumber, "expected a number but found \"" + parts[i] + "\"");
+            }
+        }
+        int lev = values[0];
+        if (lev <= LEAF_LEVEL || lev > MAX_LEVEL)
+            throw error(lineNumber, "level " + lev + " is not between " + (LEAF_LEVEL + 1) + " and " + MAX_LEVEL);
+        for (int i = 1; i < 5; i++) {
+            int child = values[i];
+            if (child < 0 || child > nodes.count)
+                throw error(lineNumber, "node " + child + " is not defined before this line");
+            if (child != 0 && nodes.level[child] != lev - 1)
+                throw error(lineNumber, "node " + child + " is level " + nodes.level[child] + ", not " + (lev - 1));
+        }
+        nodes.addNode(lev, values[1], values[2], values[3], values[4]);
+    }
+
+    private static int parseSize(String value, int line) throws IOException {
+        try {
+            int size = Integer.parseInt(value.trim());
+            if (size > 0)
+                return size;
+        } catch (NumberFormatException e) {
+            // Reported below
+        }
+        throw error(line, "expected a positive size but found \"" + value + "\"");
+    }
+
+    private static IOException error(int line, String message) {
+        return new IOException("Line " + line + ": " + message);
+    }
+}
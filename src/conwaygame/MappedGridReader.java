@@ -0,0 +1,417 @@
+package conwaygame;
+/*
+ * Reads grid files too big for a buffered stream by memory-mapping them. The file is
+ * split at whitespace into chunks of about CHUNK_SIZE bytes that are mapped one at a time
+ * with FileChannel.map, and cells are parsed straight out of the mapped bytes into the
+ * target grid. No chunk is ever mapped whole past twice CHUNK_SIZE, so files without
+ * line breaks, or bigger than the 2 GB a single mapping can hold, are read all the same.
+ *
+ * On a pool, files of PARALLEL_THRESHOLD bytes or more are parsed in parallel. A first
+ * pass counts the values and lines of every chunk, so prefix sums give the cell and line
+ * each chunk starts at, and a second pass parses every chunk into its own cells. The
+ * chunks stay mapped between the passes so their pages are only faulted in once. Smaller
+ * files are parsed in order, the counting pass costs more than the threads win back on
+ * them. The format and the errors are the same as GridReader's.
+ */
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+
+public class MappedGridReader implements Closeable {
+
+    private static final long CHUNK_SIZE = 16 << 20; // Bytes per chunk, up to the next whitespace
+    private static final long PARALLEL_THRESHOLD = 256L << 20; // Smaller bodies are parsed in order
+    private static final int HEADER_WINDOW = 4096; // The row and column counts must be within this
+    private static final int MAX_SHOWN = 20; // Longest part of a bad token repeated in an error
+
+    /**
+     * Receives the ALIVE cells of a grid. Chunks are cut at any whitespace, so different
+     * cells may be set from different threads at the same time, even cells of one row.
+     * Sinks that pack several cells into one value have to set them atomically when
+     * inParallel() is true.
+     */
+    public interface CellSink {
+        void setAlive(int row, int col);
+    }
+
+    private final FileChannel channel;
+    private final long size;
+    private int rows;
+    private int cols;
+    private long bodyStart; // First byte after the column count
+    private int bodyLine; // Line bodyStart is on
+    private long bodyLineStart; // First byte of that line
+
+    // Chunk k is the bytes [chunkStart[k], chunkStart[k + 1])
+    private long[] chunkStart;
+    private long[] firstCell; // Index of the first cell whose value is in a chunk
+    private int[] firstLine; // Line a chunk starts on
+    private long[] firstLineStart; // First byte of that line, which may be in an earlier chunk
+    private int[] endLine; // Line a chunk ends on, set once it is parsed
+    private long[] endLineStart; // First byte of that line
+    private MappedByteBuffer[] mapped; // Chunks the counting pass mapped, until they are parsed
+
+    /**
+     * Opens a grid file and reads the number of rows and columns
+     *
+     * @param file name of the file
+     * @throws IOException if the file cannot be read or does not start with a grid size
+     */
+    public MappedGridReader(String file) throws IOException {
+        channel = FileChannel.open(Paths.get(file), StandardOpenOption.READ);
+        try {
+            size = channel.size();
+            readHeader();
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    public int getCols() {
+        return cols;
+    }
+
+    /**
+     * Reads a grid file into a boolean[][] grid
+     *
+     * @param file name of the file
+     * @param pool pool to parse chunks on, null to parse them on this thread
+     * @return boolean[][] grid, true denotes an ALIVE cell
+     * @throws IOException if the file cannot be read or is not a grid file
+     */
+    public static boolean[][] readGrid(String file, ForkJoinPool pool) throws IOException {
+        try (MappedGridReader reader = new MappedGridReader(file)) {
+            boolean[][] grid = new boolean[reader.getRows()][reader.getCols()];
+            reader.read((row, col) -> grid[row][col] = true, pool);
+            return grid;
+        }
+    }
+
+    /**
+     * Reads a grid file straight into a bit-packed board
+     *
+     * @param file name of the file
+     * @param pool pool to parse chunks on, null to parse them on this thread
+     * @return PackedGrid holding the grid
+     * @throws IOException if the file cannot be read or is not a grid file
+     */
+    public static PackedGrid readPacked(String file, ForkJoinPool pool) throws IOException {
+        try (MappedGridReader reader = new MappedGridReader(file)) {
+            PackedGrid grid = new PackedGrid(reader.getRows(), reader.getCols());
+            // Chunks parsed on different threads can share a word where a row is split between them
+            reader.read(reader.inParallel(pool) ? grid::setAliveConcurrently : grid::setAliveUncounted, pool);
+            grid.recount();
+            return grid;
+        }
+    }
+
+    /**
+     * Parses every cell of the grid
+     *
+     * @param sink receives every ALIVE cell
+     * @param pool pool to parse chunks on, null to parse them on this thread (also used
+     *             when the pool only has one thread or the file is smaller than
+     *             PARALLEL_THRESHOLD, the counting pass would not pay off)
+     * @return number of ALIVE cells
+     * @throws IOException if the file cannot be read or is malformed
+     */
+    public int read(CellSink sink, ForkJoinPool pool) throws IOException {
+        splitChunks();
+        int chunks = chunkStart.length - 1;
+        long totalCells = (long) rows * cols;
+        int alive;
+        try {
+            if (!inParallel(pool)) {
+                // In order, each chunk starts where the last one stopped
+                alive = 0;
+                for (int k = 0; k < chunks; k++) {
+                    alive += parseChunk(k, sink);
+                    if (k + 1 < chunks) {
+                        firstLine[k + 1] = endLine[k];
+                        firstLineStart[k + 1] = endLineStart[k];
+                    }
+                }
+            } else {
+                pool.invoke(new RowBands(this::countChunks, 0, chunks, 1));
+                for (int k = 0; k < chunks; k++) {
+                    firstCell[k + 1] += firstCell[k];
+                    firstLine[k + 1] += firstLine[k];
+                    // A chunk without a line break ends on the line it started on
+                    firstLineStart[k + 1] = (endLineStart[k] >= 0) ? endLineStart[k] : firstLineStart[k];
+                }
+                RowBands bands = new RowBands((from, to) -> {
+                    int count = 0;
+                    for (int k = from; k < to; k++)
+                        count += parseChunk(k, sink);
+                    return count;
+                }, 0, chunks, 1);
+                pool.invoke(bands);
+                alive = bands.getTotal();
+            }
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+
+        long cells = firstCell[chunks];
+        if (cells < totalCells) {
+            int last = chunks - 1;
+            throw error(endLine[last], size - endLineStart[last] + 1,
+                    "expected true or false but the file ended");
+        }
+        return alive;
+    }
+
+    /**
+     * Returns whether read() parses this file on the pool rather than in order
+     *
+     * @param pool pool that would be passed to read()
+     * @return true if chunks are parsed on several threads
+     */
+    public boolean inParallel(ForkJoinPool pool) {
+        return pool != null && pool.getParallelism() >= 2 && size - bodyStart >= PARALLEL_THRESHOLD;
+    }
+
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * Reads the row and column counts at the start of the file
+     */
+    private void readHeader() throws IOException {
+        MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, Math.min(size, HEADER_WINDOW));
+        int[] values = new int[2];
+        String[] names = { "number of rows", "number of columns" };
+        int line = 1;
+        int lineStart = 0;
+        int i = 0;
+        for (int v = 0; v < 2; v++) {
+            while (i < header.limit() && isWhitespace(header.get(i))) {
+                if (header.get(i) == '\n') {
+                    line++;
+                    lineStart = i + 1;
+                }
+                i++;
+            }
+            if (i == header.limit())
+                throw error(line, i - lineStart + 1, "expected the " + names[v] + " but the file ended");
+            int start = i;
+            long value = 0;
+            while (i < header.limit() && header.get(i) >= '0' && header.get(i) <= '9' && value <= Integer.MAX_VALUE)
+                value = value * 10 + (header.get(i++) - '0');
+            if (i == start || value < 1 || value > Integer.MAX_VALUE
+                    || (i < header.limit() && !isWhitespace(header.get(i))))
+                throw error(line, start - lineStart + 1,
+                        "expected the " + names[v] + " but found \"" + token(header, start) + "\"");
+            values[v] = (int) value;
+        }
+        rows = values[0];
+        cols = values[1];
+        bodyStart = i;
+        bodyLine = line;
+        bodyLineStart = lineStart;
+    }
+
+    /**
+     * Splits the body into chunks that end right before a whitespace, so no value is ever
+     * split between two chunks
+     */
+    private void splitChunks() throws IOException {
+        int chunks = (int) Math.max(1, (size - bodyStart + CHUNK_SIZE - 1) / CHUNK_SIZE);
+        long[] starts = new long[chunks + 1];
+        int count = 0;
+        starts[count++] = bodyStart;
+        long position = bodyStart + CHUNK_SIZE;
+        while (position < size) {
+            long boundary = nextWhitespace(position);
+            if (boundary >= size)
+                break;
+            starts[count++] = boundary;
+            position = boundary + CHUNK_SIZE;
+        }
+        starts[count] = size;
+
+        chunkStart = Arrays.copyOf(starts, count + 1);
+        firstCell = new long[count + 1];
+        firstLine = new int[count + 1];
+        firstLineStart = new long[count + 1];
+        endLine = new int[count];
+        endLineStart = new long[count];
+        mapped = new MappedByteBuffer[count];
+        firstLine[0] = bodyLine;
+        firstLineStart[0] = bodyLineStart;
+    }
+
+    /**
+     * Finds the first whitespace at or after a position. A value is at most five bytes long,
+     * so if there is none in the next CHUNK_SIZE bytes the file is malformed anyway and the
+     * chunk is cut right there; its parse fails on the overlong value either way.
+     *
+     * @return its position, or the size of the file if there is none
+     */
+    private long nextWhitespace(long position) throws IOException {
+        long end = Math.min(size, position + CHUNK_SIZE);
+        while (position < end) {
+            int length = (int) Math.min(end - position, HEADER_WINDOW);
+            MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+            for (int i = 0; i < length; i++)
+                if (isWhitespace(window.get(i)))
+                    return position + i;
+            position += length;
+        }
+        return end;
+    }
+
+    /**
+     * Counts the values and line breaks of the chunks [from, to), storing them at
+     * firstCell[k + 1] and firstLine[k + 1] to be turned into prefix sums. The start of the
+     * line after the last break goes to endLineStart[k], -1 if the chunk has no break.
+     */
+    private int countChunks(int from, int to) {
+        for (int k = from; k < to; k++) {
+            MappedByteBuffer chunk = map(k);
+            mapped[k] = chunk;
+            long values = 0;
+            int lines = 0;
+            int lastBreak = -1;
+            boolean inToken = false;
+            for (int i = 0; i < chunk.limit(); i++) {
+                byte b = chunk.get(i);
+                boolean whitespace = isWhitespace(b);
+                if (!whitespace && !inToken)
+                    values++;
+                if (b == '\n') {
+                    lines++;
+                    lastBreak = i;
+                }
+                inToken = !whitespace;
+            }
+            firstCell[k + 1] = values;
+            firstLine[k + 1] = lines;
+            endLineStart[k] = (lastBreak >= 0) ? chunkStart[k] + lastBreak + 1 : -1;
+        }
+        return 0;
+    }
+
+    /**
+     * Parses the values of chunk k into the cells from firstCell[k] on. When parsing in
+     * order firstCell[k + 1] is still 0 and becomes the cell after its last value.
+     *
+     * @return number of ALIVE cells in the chunk
+     */
+    private int parseChunk(int k, CellSink sink) {
+        long totalCells = (long) rows * cols;
+        long cell = firstCell[k];
+        int line = firstLine[k];
+        long lineStart = firstLineStart[k];
+        MappedByteBuffer chunk = (mapped[k] != null) ? mapped[k] : map(k);
+        mapped[k] = null;
+        if (cell >= totalCells) {
+            endLine[k] = line;
+            endLineStart[k] = lineStart;
+            return 0;
+        }
+
+        int n = chunk.limit();
+        int row = (int) (cell / cols);
+        int col = (int) (cell % cols);
+        int alive = 0;
+        int i = 0;
+        while (i < n && cell < totalCells) {
+            byte b = chunk.get(i);
+            if (b == '\n') {
+                line++;
+                lineStart = chunkStart[k] + i + 1;
+                i++;
+                continue;
+            }
+            if (isWhitespace(b)) {
+                i++;
+                continue;
+            }
+
+            int start = i;
+            boolean value = b == '1' || b == 't' || b == 'T';
+            if (b == '1' || b == '0')
+                i++;
+            else if (b == 't' || b == 'T')
+                i = matches(chunk, i + 1, "rue");
+            else if (b == 'f' || b == 'F')
+                i = matches(chunk, i + 1, "alse");
+            else
+                i = -1;
+            if (i < 0 || (i < n && !isWhitespace(chunk.get(i))))
+                throw new UncheckedIOException(error(line, chunkStart[k] + start - lineStart + 1,
+                        "expected true or false but found \"" + token(chunk, start) + "\""));
+
+            if (value) {
+                sink.setAlive(row, col);
+                alive++;
+            }
+            cell++;
+            if (++col == cols) {
+                col = 0;
+                row++;
+            }
+        }
+        // The rest of a chunk that was not needed still counts for the lines
+        for (; i < n; i++)
+            if (chunk.get(i) == '\n') {
+                line++;
+                lineStart = chunkStart[k] + i + 1;
+            }
+        firstCell[k + 1] = Math.max(firstCell[k + 1], cell);
+        endLine[k] = line;
+        endLineStart[k] = lineStart;
+        return alive;
+    }
+
+    /**
+     * Checks the given lower case letters follow in any case
+     *
+     * @return the position after them, -1 if they do not match
+     */
+    private static int matches(MappedByteBuffer buffer, int i, String rest) {
+        if (i + rest.length() > buffer.limit())
+            return -1;
+        for (int j = 0; j < rest.length(); j++)
+            if ((buffer.get(i + j) | 0x20) != rest.charAt(j))
+                return -1;
+        return i + rest.length();
+    }
+
+    private MappedByteBuffer map(int k) {
+        try {
+            return channel.map(FileChannel.MapMode.READ_ONLY, chunkStart[k], chunkStart[k + 1] - chunkStart[k]);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static boolean isWhitespace(byte b) {
+        return b == ' ' || b == '\t' || b == '\n' || b == '\r' || b == '\f';
+    }
+
+    // The start of the token at i, for an error message
+    private static String token(MappedByteBuffer buffer, int i) {
+        StringBuilder token = new StringBuilder();
+        while (i < buffer.limit() && !isWhitespace(buffer.get(i)) && token.length() < MAX_SHOWN)
+            token.append((char) (buffer.get(i++) & 0xFF));
+        return token.toString();
+    }
+
+    private static IOException error(int line, long column, String message) {
+        return new IOException("Line " + line + ", column " + column + ": " + message);
+    }
+}
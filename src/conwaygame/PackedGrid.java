@@ -0,0 +1,305 @@
+package conwaygame;
+/*
+ * Bit-packed Game of Life board. Each row is stored as a run of longs with 64 cells
+ * per long (bit c % 64 of word c / 64 holds column c), rows laid out one after another.
+ * A whole word of cells is stepped at once by adding up the eight shifted neighbor
+ * words with bitwise full adders, so no cell is ever visited on its own.
+ */
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.concurrent.ForkJoinPool;
+
+public class PackedGrid implements LifeEngine {
+
+    protected final int rows;
+    protected final int cols;
+    protected final int wordsPerRow;
+    protected final long lastMask; // Valid bits of the last word in each row
+
+    protected long[] words; // The current generation
+    protected long[] next;  // Scratch buffer the next generation is written into, swapped each step
+    protected int totalAliveCells;
+
+    // Boards with fewer cells than this are stepped on one thread even when a pool is set,
+    // a word holds 64 cells so the break-even point is much higher than for boolean[][]
+    public static final int PARALLEL_THRESHOLD = 2048 * 2048;
+    protected ForkJoinPool pool; // Runs row bands of large boards, null to always step sequentially
+
+    private static final VarHandle WORD = MethodHandles.arrayElementVarHandle(long[].class);
+
+    /**
+     * Creates an empty (all DEAD) board
+     *
+     * @param rows number of rows
+     * @param cols number of columns
+     */
+    public PackedGrid(int rows, int cols) {
+        if (rows < 1 || cols < 1)
+            throw new IllegalArgumentException("Board must have at least one row and column");
+        this.rows = rows;
+        this.cols = cols;
+        wordsPerRow = (cols + 63) >>> 6;
+        lastMask = -1L >>> (63 - ((cols - 1) & 63));
+        words = new long[rows * wordsPerRow];
+        next = new long[rows * wordsPerRow];
+    }
+
+    /**
+     * Creates a packed copy of a boolean[][] grid (true denotes an ALIVE cell)
+     *
+     * @param grid grid to copy
+     */
+    public PackedGrid(boolean[][] grid) {
+        this(grid.length, grid[0].length);
+        for (int i = 0; i < rows; i++)
+            for (int j = 0; j < cols; j++)
+                if (grid[i][j])
+                    words[i * wordsPerRow + (j >>> 6)] |= 1L << j;
+        totalAliveCells = countAliveCells();
+    }
+
+    /**
+     * Creates a board that takes over words already in this layout, for loaders
+     *
+     * @param rows  number of rows
+     * @param cols  number of columns
+     * @param words rows * ((cols + 63) / 64) longs, bits past the last column must be 0
+     */
+    PackedGrid(int rows, int cols, long[] words) {
+        this(rows, cols);
+        System.arraycopy(words, 0, this.words, 0, this.words.length);
+        totalAliveCells = countAliveCells();
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    public int getCols() {
+        return cols;
+    }
+
+    public boolean getCellState(int row, int col) {
+        return (words[row * wordsPerRow + (col >>> 6)] & (1L << col)) != 0;
+    }
+
+    /**
+     * Sets the status of the cell at (row,col)
+     *
+     * @param row   row position of the cell
+     * @param col   column position of the cell
+     * @param alive true for ALIVE, false for DEAD
+     */
+    public void setCellState(int row, int col, boolean alive) {
+        int i = row * wordsPerRow + (col >>> 6);
+        long bit = 1L << col;
+        if (alive && (words[i] & bit) == 0) {
+            words[i] |= bit;
+            totalAliveCells++;
+        } else if (!alive && (words[i] & bit) != 0) {
+            words[i] &= ~bit;
+            totalAliveCells--;
+        }
+    }
+
+    public int getTotalAliveCells() {
+        return totalAliveCells;
+    }
+
+    /**
+     * Sets a cell ALIVE without counting it, for loaders that fill different rows from
+     * several threads at once. recount() has to be called once they are done.
+     *
+     * @param row row position of the cell
+     * @param col column position of the cell
+     */
+    void setAliveUncounted(int row, int col) {
+        words[row * wordsPerRow + (col >>> 6)] |= 1L << col;
+    }
+
+    /**
+     * Same as setAliveUncounted() but with an atomic OR, for loaders whose threads may be
+     * setting cells of the same word at once. About a tenth slower, so only worth it then.
+     *
+     * @param row row position of the cell
+     * @param col column position of the cell
+     */
+    void setAliveConcurrently(int row, int col) {
+        WORD.getAndBitwiseOr(words, row * wordsPerRow + (col >>> 6), 1L << col);
+    }
+
+    /**
+     * Counts the alive cells again after setAliveUncounted()
+     */
+    void recount() {
+        totalAliveCells = countAliveCells();
+    }
+
+    /**
+     * Returns the 64 cells of a row starting at column 64 * w, for readers that compare
+     * boards a word at a time
+     *
+     * @param row row of the word
+     * @param w   index of the word within the row
+     * @return the word, bit c holds column 64 * w + c
+     */
+    long getWord(int row, int w) {
+        return words[row * wordsPerRow + w];
+    }
+
+    /**
+     * Copies the words of the current generation, for savers
+     *
+     * @return copy of the words, rows * ((cols + 63) / 64) longs
+     */
+    long[] copyWords() {
+        return words.clone();
+    }
+
+    /**
+     * Sets the pool that large boards are stepped on in bands of rows
+     *
+     * @param pool pool to use, or null to always step sequentially
+     */
+    public void setPool(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    public void nextGeneration() {
+        if (pool != null && (long) rows * cols >= PARALLEL_THRESHOLD) {
+            RowBands bands = new RowBands(this::stepRows, 0, rows, RowBands.bandRows(rows, pool.getParallelism()));
+            pool.invoke(bands);
+            totalAliveCells = bands.getTotal();
+        } else {
+            totalAliveCells = stepRows(0, rows);
+        }
+        swap();
+    }
+
+    /**
+     * Hashes whole words instead of cells, every non-empty word is mixed with its index.
+     * The hash is not tracked while stepping: every word is rewritten each step anyway, and
+     * a pass that skips the empty words costs less than comparing every word with its old self.
+     */
+    public long stateHash() {
+        long hash = 0;
+        for (int i = 0; i < words.length; i++)
+            hash ^= wordHash(i, words[i]);
+        return hash;
+    }
+
+    // What word i adds to stateHash(), empty words add nothing. One multiply-xorshift round
+    // is plenty here: a hash that comes back is always checked against the board itself.
+    protected static long wordHash(int i, long word) {
+        if (word == 0)
+            return 0;
+        long z = word + i * 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 32)) * 0xD6E8FEB86659FD93L;
+        return z ^ (z >>> 32);
+    }
+
+    public boolean[][] toGrid() {
+        boolean[][] grid = new boolean[rows][cols];
+        for (int i = 0; i < rows; i++)
+            for (int j = 0; j < cols; j++)
+                grid[i][j] = getCellState(i, j);
+        return grid;
+    }
+
+    /**
+     * Writes the next generation of rows [fromRow, toRow) into the scratch buffer
+     *
+     * @param fromRow first row to compute
+     * @param toRow   row after the last row to compute
+     * @return number of alive cells written, counted while the words are still in cache
+     */
+    protected int stepRows(int fromRow, int toRow) {
+        int count = 0;
+        for (int r = fromRow; r < toRow; r++) {
+            for (int w = 0; w < wordsPerRow; w++) {
+                long word = stepWord(r, w);
+                next[r * wordsPerRow + w] = word;
+                count += Long.bitCount(word);
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Makes the scratch buffer the current generation
+     */
+    protected void swap() {
+        long[] temp = words;
+        words = next;
+        next = temp;
+    }
+
+    /**
+     * Counts the alive cells in the current generation
+     *
+     * @return number of set bits over every word
+     */
+    private int countAliveCells() {
+        int count = 0;
+        for (long word : words)
+            count += Long.bitCount(word);
+        return count;
+    }
+
+    /**
+     * Computes the next generation of one word of the board. Rows and columns wrap
+     * around the edges exactly like GameOfLife.numOfAliveNeighbors(), including on
+     * boards only one or two cells wide where a neighbor may be counted twice.
+     *
+     * @param r row of the word
+     * @param w index of the word within the row
+     * @return the 64 cells of the next generation
+     */
+    protected long stepWord(int r, int w) {
+        int up = ((r == 0) ? rows - 1 : r - 1) * wordsPerRow;
+        int mid = r * wordsPerRow;
+        int down = ((r == rows - 1) ? 0 : r + 1) * wordsPerRow;
+
+        long a = west(up, w), b = words[up + w], c = east(up, w);
+        long d = west(mid, w), e = east(mid, w);
+        long f = west(down, w), g = words[down + w], h = east(down, w);
+
+        // Full adders over the eight neighbor words, every bit position counts independently
+        long abx = a ^ b;
+        long s1 = abx ^ c;
+        long c1 = (a & b) | (abx & c);
+        long dex = d ^ e;
+        long s2 = dex ^ f;
+        long c2 = (d & e) | (dex & f);
+        long s3 = g ^ h;
+        long c3 = g & h;
+
+        long s12 = s1 ^ s2;
+        long ones = s12 ^ s3;
+        long c4 = (s1 & s2) | (s12 & s3);
+
+        long c12 = c1 ^ c2;
+        long t = c12 ^ c3;
+        long c5 = (c1 & c2) | (c12 & c3);
+        long twos = t ^ c4;
+        long c6 = t & c4;
+
+        // Alive next generation: exactly 3 neighbors, or exactly 2 and already alive
+        long result = twos & ~(c5 | c6) & (ones | words[mid + w]);
+        return (w == wordsPerRow - 1) ? result & lastMask : result;
+    }
+
+    // Word whose bit c is the cell at column c - 1 of the row starting at base
+    private long west(int base, int w) {
+        long carry = (w > 0) ? words[base + w - 1] >>> 63
+                : (words[base + wordsPerRow - 1] >>> ((cols - 1) & 63)) & 1L;
+        return (words[base + w] << 1) | carry;
+    }
+
+    // Word whose bit c is the cell at column c + 1 of the row starting at base
+    private long east(int base, int w) {
+        long carry = (w < wordsPerRow - 1) ? words[base + w + 1] << 63
+                : (words[base] & 1L) << ((cols - 1) & 63);
+        return (words[base + w] >>> 1) | carry;
+    }
+}
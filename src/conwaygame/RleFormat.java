@@ -0,0 +1,237 @@
+package conwaygame;
+/*
+ * Reads and writes the run-length encoded (RLE) format most Life programs share. After
+ * any # comment lines comes the header "x = <cols>, y = <rows>, rule = B3/S23", then the
+ * cells row by row as runs: <count>b for dead cells, <count>o for alive cells, <count>$
+ * to end rows, and ! at the end. A missing count means 1, cells left out at the end of a
+ * row are dead, and line breaks may appear anywhere between runs.
+ *
+ * Both directions stream, so a pattern is never held as one String.
+ */
+import java.io.BufferedWriter;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+public class RleFormat {
+
+    public static final String RULE = "B3/S23"; // The only rule GameOfLife plays by
+    private static final int LINE_LENGTH = 70; // Longest body line written, as other programs expect
+
+    private final Reader in;
+    private final char[] buffer = new char[1 << 14];
+    private int pos;
+    private int limit;
+    private int line = 1;
+    private int column; // Column of the last char returned by next()
+
+    private RleFormat(Reader in) {
+        this.in = in;
+    }
+
+    /**
+     * Reads an RLE file
+     *
+     * @param file name of the file
+     * @return boolean[][] grid, true denotes an ALIVE cell
+     * @throws IOException if the file cannot be read, is malformed, or uses another rule
+     */
+    public static boolean[][] read(String file) throws IOException {
+        try (InputStream in = new FileInputStream(file)) {
+            return read(in);
+        }
+    }
+
+    /**
+     * Reads an RLE pattern from a stream, which is not closed
+     *
+     * @param in stream holding the pattern
+     * @return boolean[][] grid, true denotes an ALIVE cell
+     * @throws IOException if the stream cannot be read, is malformed, or uses another rule
+     */
+    public static boolean[][] read(InputStream in) throws IOException {
+        RleFormat reader = new RleFormat(new InputStreamReader(in, StandardCharsets.US_ASCII));
+        return reader.readPattern();
+    }
+
+    /**
+     * Writes a grid as an RLE file
+     *
+     * @param grid grid to write, true denotes an ALIVE cell
+     * @param file name of the file
+     * @throws IOException if the file cannot be written
+     */
+    public static void write(boolean[][] grid, String file) throws IOException {
+        try (Writer out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.US_ASCII))) {
+            write(grid, out);
+        }
+    }
+
+    /**
+     * Writes a grid as an RLE pattern, the writer is flushed but not closed
+     *
+     * @param grid grid to write, true denotes an ALIVE cell
+     * @param out  where the pattern goes
+     * @throws IOException if writing fails
+     */
+    public static void write(boolean[][] grid, Writer out) throws IOException {
+        int rows = grid.length;
+        int cols = grid[0].length;
+        out.write("x = " + cols + ", y = " + rows + ", rule = " + RULE + "\n");
+
+        RunWriter runs = new RunWriter(out);
+        int emptyRows = 0; // Row ends not written yet, so runs of them become one n$
+        for (int i = 0; i < rows; i++) {
+            boolean[] row = grid[i];
+            int j = 0;
+            while (j < cols) {
+                boolean alive = row[j];
+                int start = j;
+                while (j < cols && row[j] == alive)
+                    j++;
+                if (!alive && j == cols)
+                    break; // Trailing dead cells are left out
+                if (emptyRows > 0) {
+                    runs.write(emptyRows, '$');
+                    emptyRows = 0;
+                }
+                runs.write(j - start, alive ? 'o' : 'b');
+            }
+            emptyRows++;
+        }
+        runs.write(1, '!');
+        out.write('\n');
+        out.flush();
+    }
+
+    /**
+     * Writes runs and wraps lines before they get longer than LINE_LENGTH
+     */
+    private static class RunWriter {
+        private final Writer out;
+        private int lineLength;
+
+        RunWriter(Writer out) {
+            this.out = out;
+        }
+
+        void write(int count, char tag) throws IOException {
+            String run = (count == 1) ? String.valueOf(tag) : count + String.valueOf(tag);
+            if (lineLength + run.length() > LINE_LENGTH) {
+                out.write('\n');
+                lineLength = 0;
+            }
+            out.write(run);
+            lineLength += run.length();
+        }
+    }
+
+    private boolean[][] readPattern() throws IOException {
+        // Comment lines, then the header
+        int c = next();
+        while (c == '#' || c == '\n' || c == '\r') {
+            while (c != '\n' && c != -1)
+                c = next();
+            c = next();
+        }
+        int headerLine = line;
+        StringBuilder header = new StringBuilder();
+        while (c != '\n' && c != -1) {
+            header.append((char) c);
+            c = next();
+        }
+        int cols = -1, rows = -1;
+        for (String part : header.toString().split(",")) {
+            String[] pair = part.split("=", 2);
+            String key = pair[0].trim().toLowerCase();
+            String value = (pair.length == 2) ? pair[1].trim() : "";
+            if (key.equals("x"))
+                cols = parseSize(value, headerLine);
+            else if (key.equals("y"))
+                rows = parseSize(value, headerLine);
+            else if (key.equals("rule") && !isLifeRule(value))
+                throw error(headerLine, 1, "only the rule " + RULE + " is supported, not \"" + value + "\"");
+        }
+        if (cols == -1 || rows == -1)
+            throw error(headerLine, 1, "expected a header like \"x = 3, y = 3, rule = " + RULE + "\"");
+
+        boolean[][] grid = new boolean[rows][cols];
+        int row = 0, col = 0;
+        long count = 0;
+        c = next();
+        while (c != '!') {
+            if (c == -1)
+                throw error(line, column, "expected ! at the end of the pattern but the file ended");
+            if (c >= '0' && c <= '9') {
+                count = count * 10 + (c - '0');
+                if (count > Math.max(rows, cols))
+                    throw error(line, column, "run of more than " + Math.max(rows, cols) + " cells");
+            } else if (c == '$') {
+                row = (int) Math.min(rows, row + Math.max(count, 1));
+                col = 0;
+                count = 0;
+            } else if (c == '.' || (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z')) {
+                // b and . are DEAD, every other letter is ALIVE like in two-state patterns
+                int run = (int) Math.max(count, 1);
+                if (row >= rows || (long) col + run > cols)
+                    throw error(line, column, "cells outside of x = " + cols + ", y = " + rows);
+                if (c != 'b' && c != '.')
+                    for (int j = col; j < col + run; j++)
+                        grid[row][j] = true;
+                col += run;
+                count = 0;
+            } else if (c != ' ' && c != '\t' && c != '\r' && c != '\n') {
+                throw error(line, column, "unexpected \"" + (char) c + "\"");
+            }
+            c = next();
+        }
+        return grid;
+    }
+
+    private static int parseSize(String value, int line) throws IOException {
+        try {
+            int size = Integer.parseInt(value);
+            if (size > 0)
+                return size;
+        } catch (NumberFormatException e) {
+            // Reported below
+        }
+        throw error(line, 1, "expected a positive size but found \"" + value + "\"");
+    }
+
+    // Accepts B3/S23 and the older 23/3 way of writing it
+    static boolean isLifeRule(String rule) {
+        String r = rule.replace(" ", "").toUpperCase();
+        return r.equals("B3/S23") || r.equals("S23/B3") || r.equals("23/3");
+    }
+
+    /**
+     * Returns the next char, -1 at the end of the stream, keeping track of the position
+     */
+    private int next() throws IOException {
+        if (pos == limit) {
+            limit = Math.max(0, in.read(buffer));
+            pos = 0;
+            if (limit == 0)
+                return -1;
+        }
+        char c = buffer[pos++];
+        if (c == '\n') {
+            line++;
+            column = 0;
+        } else {
+            column++;
+        }
+        return c;
+    }
+
+    private static IOException error(int line, int column, String message) {
+        return new IOException("Line " + line + ", column " + column + ": " + message);
+    }
+}
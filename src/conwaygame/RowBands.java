@@ -0,0 +1,66 @@
+package conwaygame;
+/*
+ * Fork/join task that splits a range of rows into bands and computes each band on its own.
+ * Each row of the next generation only depends on three rows of the current one, so the
+ * bands can be computed in any order and on any thread. The count every band returns is
+ * added up into getTotal(), which is how population changes are collected without a second pass.
+ */
+import java.util.concurrent.RecursiveAction;
+
+public class RowBands extends RecursiveAction {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Computes the rows [fromRow, toRow) of the next generation and returns a count
+     * for them, such as the number of alive cells or of births minus deaths
+     */
+    public interface Rows {
+        int compute(int fromRow, int toRow);
+    }
+
+    private final Rows rows;
+    private final int fromRow;
+    private final int toRow;
+    private final int bandRows; // Bands this many rows or smaller are computed without splitting further
+    private int total; // Sum of the counts returned for every band in this task
+
+    public RowBands(Rows rows, int fromRow, int toRow, int bandRows) {
+        this.rows = rows;
+        this.fromRow = fromRow;
+        this.toRow = toRow;
+        this.bandRows = Math.max(1, bandRows);
+    }
+
+    protected void compute() {
+        if (toRow - fromRow <= bandRows) {
+            total = rows.compute(fromRow, toRow);
+            return;
+        }
+        int mid = (fromRow + toRow) >>> 1;
+        RowBands top = new RowBands(rows, fromRow, mid, bandRows);
+        RowBands bottom = new RowBands(rows, mid, toRow, bandRows);
+        invokeAll(top, bottom);
+        total = top.total + bottom.total;
+    }
+
+    /**
+     * Returns the sum of the counts of every band, once the task has been invoked
+     * 
+     * @return int for the total count
+     */
+    public int getTotal() {
+        return total;
+    }
+
+    /**
+     * Picks a band height that gives every thread a few bands to balance the load
+     * 
+     * @param totalRows   number of rows to split
+     * @param parallelism number of threads the bands will run on
+     * @return rows per band
+     */
+    public static int bandRows(int totalRows, int parallelism) {
+        return Math.max(1, totalRows / (4 * parallelism));
+    }
+}
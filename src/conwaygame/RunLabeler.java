@@ -0,0 +1,218 @@
+package conwaygame;
+/*
+ * Counts communities Hoshen-Kopelman style: every row is cut into runs of consecutive
+ * alive cells, and the union-find works on runs instead of cells. A run is joined with
+ * the runs of the row above that touch it (including diagonally), with the last row
+ * stitched to the first and the last column to the first, so the result is the same as
+ * GameOfLife.numOfCommunities() with far fewer unions.
+ *
+ * On a pool the rows are split into bands. Runs are found in two passes (count the runs
+ * of every row, then fill them in at their prefix-sum offsets), every band is labeled on
+ * its own, and the bands are merged afterwards across their first rows, which includes
+ * the wrap seam between the last row and the first.
+ */
+import java.util.concurrent.ForkJoinPool;
+
+public class RunLabeler {
+
+    // Joins two runs and returns true if they were in different communities
+    private interface Joiner {
+        boolean union(int p, int q);
+    }
+
+    private final boolean[][] grid;
+    private final int rows;
+    private final int cols;
+    private final int[] rowStart; // Runs of row r are rowStart[r] to rowStart[r + 1] - 1
+    private final int[] runStart; // First column of each run
+    private final int[] runEnd; // Last column of each run
+    private final int runCount;
+
+    /**
+     * Cuts every row of a grid into runs
+     *
+     * @param grid grid to label, true denotes an ALIVE cell
+     */
+    public RunLabeler(boolean[][] grid) {
+        this(grid, null, 1);
+    }
+
+    /**
+     * Cuts every row of a grid into runs, in row bands on a pool
+     *
+     * @param grid        grid to label, true denotes an ALIVE cell
+     * @param pool        pool to find the runs on, null to do it on this thread
+     * @param parallelism number of threads of the pool
+     */
+    public RunLabeler(boolean[][] grid, ForkJoinPool pool, int parallelism) {
+        this.grid = grid;
+        rows = grid.length;
+        cols = grid[0].length;
+        rowStart = new int[rows + 1];
+
+        // rowStart[r + 1] holds the number of runs of row r until the prefix sum below
+        invokeBands(pool, parallelism, this::countRuns);
+        for (int r = 0; r < rows; r++)
+            rowStart[r + 1] += rowStart[r];
+        runCount = rowStart[rows];
+
+        runStart = new int[runCount];
+        runEnd = new int[runCount];
+        invokeBands(pool, parallelism, this::fillRuns);
+    }
+
+    /**
+     * Returns the number of runs of alive cells
+     *
+     * @return int for total runs over every row
+     */
+    public int getRunCount() {
+        return runCount;
+    }
+
+    /**
+     * Counts the communities
+     *
+     * @return the number of communities, the same as GameOfLife.numOfCommunities()
+     */
+    public int count() {
+        WeightedQuickUnionUF uf = new WeightedQuickUnionUF(runCount);
+        Joiner joiner = uf::union;
+        int communities = runCount;
+        for (int r = 0; r < rows; r++) {
+            communities -= joinAcrossSeam(joiner, r);
+            communities -= joinRows(joiner, r, previous(r));
+        }
+        return communities;
+    }
+
+    /**
+     * Counts the communities, labeling row bands in parallel
+     *
+     * @param pool        pool to label the bands on
+     * @param parallelism number of threads of the pool
+     * @return the number of communities, the same as count()
+     */
+    public int count(ForkJoinPool pool, int parallelism) {
+        ConcurrentUnionFind uf = new ConcurrentUnionFind(runCount);
+        Joiner joiner = uf::union;
+        boolean[] bandStart = new boolean[rows]; // First row of every band, each band marks its own
+
+        int merged = invokeBands(pool, parallelism, (fromRow, toRow) -> {
+            bandStart[fromRow] = true;
+            int count = joinAcrossSeam(joiner, fromRow);
+            for (int r = fromRow + 1; r < toRow; r++) {
+                count += joinAcrossSeam(joiner, r);
+                count += joinRows(joiner, r, r - 1);
+            }
+            return count;
+        });
+
+        // Stitch every band to the one above it, row 0 to the last row
+        for (int r = 0; r < rows; r++)
+            if (bandStart[r])
+                merged += joinRows(joiner, r, previous(r));
+        return runCount - merged;
+    }
+
+    private int previous(int r) {
+        return (r == 0) ? rows - 1 : r - 1;
+    }
+
+    /**
+     * Runs rows over [0, rows) on the pool, or directly when there is none
+     *
+     * @return the sum of the counts of every band
+     */
+    private int invokeBands(ForkJoinPool pool, int parallelism, RowBands.Rows task) {
+        if (pool == null)
+            return task.compute(0, rows);
+        RowBands bands = new RowBands(task, 0, rows, RowBands.bandRows(rows, parallelism));
+        pool.invoke(bands);
+        return bands.getTotal();
+    }
+
+    /**
+     * Stores the number of runs of every row r in [fromRow, toRow) at rowStart[r + 1]
+     */
+    private int countRuns(int fromRow, int toRow) {
+        for (int r = fromRow; r < toRow; r++) {
+            boolean[] row = grid[r];
+            // A run starts at every alive cell after a dead one, counted without branching
+            int count = 0;
+            int previous = 0;
+            for (int c = 0; c < cols; c++) {
+                int alive = row[c] ? 1 : 0;
+                count += alive & ~previous;
+                previous = alive;
+            }
+            rowStart[r + 1] = count;
+        }
+        return 0;
+    }
+
+    /**
+     * Fills in the runs of the rows [fromRow, toRow) once rowStart is known
+     */
+    private int fillRuns(int fromRow, int toRow) {
+        for (int r = fromRow; r < toRow; r++) {
+            boolean[] row = grid[r];
+            int run = rowStart[r];
+            int c = 0;
+            while (c < cols) {
+                if (!row[c]) {
+                    c++;
+                    continue;
+                }
+                runStart[run] = c;
+                while (c < cols && row[c])
+                    c++;
+                runEnd[run++] = c - 1;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Joins the first and last run of a row when they touch through the wrapped column edge
+     *
+     * @return number of unions that merged two communities
+     */
+    private int joinAcrossSeam(Joiner uf, int r) {
+        int first = rowStart[r], last = rowStart[r + 1] - 1;
+        if (last > first && runStart[first] == 0 && runEnd[last] == cols - 1)
+            return uf.union(first, last) ? 1 : 0;
+        return 0;
+    }
+
+    /**
+     * Joins every run of row a with the runs of row b that touch it, including
+     * diagonally and through the wrapped column edge
+     *
+     * @return number of unions that merged two communities
+     */
+    private int joinRows(Joiner uf, int a, int b) {
+        int merged = 0;
+        int i = rowStart[a], iEnd = rowStart[a + 1];
+        int j = rowStart[b], jEnd = rowStart[b + 1];
+        if (i == iEnd || j == jEnd)
+            return 0;
+
+        // Diagonal neighbors through the column seam
+        if (runStart[i] == 0 && runEnd[jEnd - 1] == cols - 1 && uf.union(i, jEnd - 1))
+            merged++;
+        if (runEnd[iEnd - 1] == cols - 1 && runStart[j] == 0 && uf.union(iEnd - 1, j))
+            merged++;
+
+        // Both rows are sorted, so walk them together like a merge
+        while (i < iEnd && j < jEnd) {
+            if (runStart[j] <= runEnd[i] + 1 && runEnd[j] >= runStart[i] - 1 && uf.union(i, j))
+                merged++;
+            if (runEnd[i] < runEnd[j])
+                i++;
+            else
+                j++;
+        }
+        return merged;
+    }
+}
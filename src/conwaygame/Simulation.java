@@ -0,0 +1,162 @@
+package conwaygame;
+/*
+ * Plays a game continuously on a thread of its own, computing generations as fast as it
+ * can, while another thread draws it at whatever pace it likes. Neither waits for the
+ * other: after each generation the simulation thread checks whether the last Frame it
+ * published has been taken, and only then publishes a copy of the current generation
+ * through an AtomicReference. Taking a frame is a single read of that reference, so
+ * copies are made at the rate frames are drawn instead of the rate generations are
+ * computed, and a slow frame never holds the simulation up.
+ *
+ * While it runs the game belongs to the simulation thread and must only be looked at
+ * through frames. stop() waits for the generation in progress to finish, after which the
+ * game can be used as usual again.
+ */
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class Simulation {
+
+    /**
+     * One published generation, it is never changed once published
+     */
+    public static class Frame {
+        private final boolean[][] grid;
+        private final long generation;
+        private final long time; // System.nanoTime() when the frame was published
+
+        private Frame(boolean[][] grid, long generation, long time) {
+            this.grid = grid;
+            this.generation = generation;
+            this.time = time;
+        }
+
+        /**
+         * Returns the cells of the generation, true denotes an ALIVE cell. The array
+         * belongs to the frame and must not be changed.
+         *
+         * @return boolean[][] grid of the generation
+         */
+        public boolean[][] getGrid() {
+            return grid;
+        }
+
+        public long getGeneration() {
+            return generation;
+        }
+
+        public long getTime() {
+            return time;
+        }
+
+        /**
+         * Returns how many generations a second were computed between an earlier frame
+         * and this one
+         *
+         * @param earlier frame taken before this one
+         * @return generations per second, 0 if no time passed between the frames
+         */
+        public double generationsPerSecond(Frame earlier) {
+            long nanos = time - earlier.time;
+            return (nanos > 0) ? (generation - earlier.generation) * 1e9 / nanos : 0;
+        }
+    }
+
+    private final GameOfLife game;
+    private final AtomicReference<Frame> latest = new AtomicReference<>(); // Last frame published
+    private final AtomicBoolean taken = new AtomicBoolean(); // Whether latest was taken since it was published
+    private volatile boolean running;
+    private volatile RuntimeException failure; // What stopped the simulation thread, if it failed
+    private Thread thread;
+
+    /**
+     * Creates a simulation of a game, the current generation is published right away
+     *
+     * @param game game to play, not to be used by anything else until stop()
+     */
+    public Simulation(GameOfLife game) {
+        this.game = game;
+        publish();
+    }
+
+    /**
+     * Starts computing generations on a new daemon thread
+     */
+    public void start() {
+        if (thread != null)
+            throw new IllegalStateException("Simulation is already running");
+        running = true;
+        thread = new Thread(this::run, "simulation");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private void run() {
+        try {
+            while (running) {
+                game.nextGeneration();
+                if (taken.compareAndSet(true, false))
+                    publish();
+            }
+        } catch (RuntimeException e) {
+            failure = e;
+        } finally {
+            running = false;
+        }
+    }
+
+    // getGrid() hands out a copy that later generations never write into, so the frame can be shared as is
+    private void publish() {
+        latest.set(new Frame(game.getGrid(), game.getGeneration(), System.nanoTime()));
+    }
+
+    /**
+     * Returns the latest published frame without waiting, and asks for a newer one to be
+     * published after the next generation. Taking again before that returns the same frame.
+     *
+     * @return latest Frame
+     */
+    public Frame take() {
+        Frame frame = latest.get();
+        taken.set(true);
+        return frame;
+    }
+
+    /**
+     * Returns whether the simulation thread is computing generations, false once it was
+     * stopped or failed
+     *
+     * @return true if running
+     */
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Stops computing generations and waits for the generation in progress to finish,
+     * the game can be used again afterwards
+     *
+     * @throws RuntimeException whatever made the simulation thread fail, if it did since
+     *                          the last stop()
+     */
+    public void stop() {
+        running = false;
+        if (thread != null) {
+            boolean interrupted = false;
+            while (thread.isAlive()) {
+                try {
+                    thread.join();
+                } catch (InterruptedException e) {
+                    interrupted = true; // The game can't be handed back before the thread is done
+                }
+            }
+            thread = null;
+            if (interrupted)
+                Thread.currentThread().interrupt();
+        }
+        RuntimeException failed = failure;
+        failure = null; // Thrown once, a restarted simulation starts with a clean slate
+        if (failed != null)
+            throw failed;
+    }
+}
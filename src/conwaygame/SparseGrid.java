@@ -0,0 +1,140 @@
+package conwaygame;
+/*
+ * Sparse Game of Life board that only remembers which cells are alive. Each generation
+ * every alive cell adds one to the count of its eight neighbors, and only the cells that
+ * received a count can be alive afterwards, so a step costs time proportional to the
+ * population instead of the area of the board. Cells are keyed as row * cols + col.
+ */
+public class SparseGrid implements LifeEngine {
+
+    private final int rows;
+    private final int cols;
+
+    private LongHashSet alive; // Keys of the alive cells of the current generation
+    private LongHashSet nextAlive; // Scratch set the next generation is collected in, swapped each step
+    private final LongIntHashMap counts = new LongIntHashMap(); // Alive neighbors of every cell next to an alive cell
+
+    /**
+     * Creates an empty (all DEAD) board
+     *
+     * @param rows number of rows
+     * @param cols number of columns
+     */
+    public SparseGrid(int rows, int cols) {
+        if (rows < 1 || cols < 1)
+            throw new IllegalArgumentException("Board must have at least one row and column");
+        this.rows = rows;
+        this.cols = cols;
+        alive = new LongHashSet();
+        nextAlive = new LongHashSet();
+    }
+
+    /**
+     * Creates a sparse copy of a boolean[][] grid (true denotes an ALIVE cell)
+     *
+     * @param grid grid to copy
+     */
+    public SparseGrid(boolean[][] grid) {
+        this(grid.length, grid[0].length);
+        for (int i = 0; i < rows; i++)
+            for (int j = 0; j < cols; j++)
+                if (grid[i][j])
+                    alive.add(key(i, j));
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    public int getCols() {
+        return cols;
+    }
+
+    public boolean getCellState(int row, int col) {
+        return alive.contains(key(row, col));
+    }
+
+    /**
+     * Sets the status of the cell at (row,col) to ALIVE
+     *
+     * @param row row position of the cell
+     * @param col column position of the cell
+     */
+    public void setAlive(int row, int col) {
+        alive.add(key(row, col));
+    }
+
+    public int getTotalAliveCells() {
+        return alive.size();
+    }
+
+    /**
+     * Advances the board by one generation. Neighbors wrap around the edges like
+     * GameOfLife.numOfAliveNeighbors(); on boards one or two cells wide a neighbor
+     * reached through two directions is counted twice there, and here as well.
+     */
+    public void nextGeneration() {
+        counts.clear();
+        for (int slot = 0; slot < alive.capacity(); slot++) {
+            long key = alive.keyAt(slot);
+            if (key == LongHashSet.EMPTY)
+                continue;
+            int row = (int) (key / cols);
+            int col = (int) (key % cols);
+            int up = (row == 0) ? rows - 1 : row - 1;
+            int down = (row == rows - 1) ? 0 : row + 1;
+            int left = (col == 0) ? cols - 1 : col - 1;
+            int right = (col == cols - 1) ? 0 : col + 1;
+
+            counts.addTo(key(up, left), 1);
+            counts.addTo(key(up, col), 1);
+            counts.addTo(key(up, right), 1);
+            counts.addTo(key(row, left), 1);
+            counts.addTo(key(row, right), 1);
+            counts.addTo(key(down, left), 1);
+            counts.addTo(key(down, col), 1);
+            counts.addTo(key(down, right), 1);
+        }
+
+        nextAlive.clear();
+        for (int slot = 0; slot < counts.capacity(); slot++) {
+            long key = counts.keyAt(slot);
+            if (key == LongIntHashMap.EMPTY)
+                continue;
+            int count = counts.valueAt(slot);
+            if (count == 3 || (count == 2 && alive.contains(key)))
+                nextAlive.add(key);
+        }
+
+        LongHashSet temp = alive;
+        alive = nextAlive;
+        nextAlive = temp;
+    }
+
+    /**
+     * XORs the Zobrist keys of the alive cells only, so hashing costs as much as the population
+     */
+    public long stateHash() {
+        long hash = 0;
+        for (int slot = 0; slot < alive.capacity(); slot++) {
+            long key = alive.keyAt(slot);
+            if (key != LongHashSet.EMPTY)
+                hash ^= LifeEngine.zobrist(key);
+        }
+        return hash;
+    }
+
+    public boolean[][] toGrid() {
+        boolean[][] grid = new boolean[rows][cols];
+        for (int slot = 0; slot < alive.capacity(); slot++) {
+            long key = alive.keyAt(slot);
+            if (key != LongHashSet.EMPTY)
+                grid[(int) (key / cols)][(int) (key % cols)] = true;
+        }
+        return grid;
+    }
+
+    private long key(int row, int col) {
+        return (long) row * cols + col;
+    }
+}
@@ -47,6 +47,7 @@ import java.awt.event.MouseMotionListener;
 import java.awt.event.KeyEvent;
 import java.awt.event.KeyListener;
 
+import java.awt.geom.AffineTransform;
 import java.awt.geom.Arc2D;
 import java.awt.geom.Ellipse2D;
 import java.awt.geom.GeneralPath;
@@ -1599,6 +1600,83 @@ public final class StdDraw implements ActionListener, MouseListener, MouseMotion
         draw();
     }
 
+    /**
+     * Copies the specified image pixel for pixel onto the canvas, centered at
+     * (<em>x</em>, <em>y</em>), without scaling or smoothing it. An image of
+     * {@link #pixelsX(double)} by {@link #pixelsY(double)} pixels fills a box of
+     * that width and height exactly, which makes this the fastest way to draw
+     * something computed pixel by pixel, like a large grid of cells.
+     *
+     * @param  x the center <em>x</em>-coordinate of the image
+     * @param  y the center <em>y</em>-coordinate of the image
+     * @param  image the image to draw
+     * @throws IllegalArgumentException if {@code x} or {@code y} is either NaN or infinite
+     * @throws IllegalArgumentException if {@code image} is {@code null}
+     */
+    public static void picture(double x, double y, BufferedImage image) {
+        validate(x, "x");
+        validate(y, "y");
+        validateNotNull(image, "image");
+
+        // Place the image in device pixels, so the canvas's own scaling does not resample it
+        AffineTransform transform = offscreen.getTransform();
+        double xs = transform.getScaleX() * scaleX(x) - image.getWidth() / 2.0;
+        double ys = transform.getScaleY() * scaleY(y) - image.getHeight() / 2.0;
+        offscreen.setTransform(new AffineTransform());
+        offscreen.drawImage(image, (int) Math.round(xs), (int) Math.round(ys), null);
+        offscreen.setTransform(transform);
+        draw();
+    }
+
+    /**
+     * Copies part of the specified image pixel for pixel onto the canvas, where it
+     * would be if the whole image were drawn with {@link #picture(double, double, BufferedImage)}.
+     * Used to redraw only the part of an image that changed.
+     *
+     * @param  x the center <em>x</em>-coordinate of the whole image
+     * @param  y the center <em>y</em>-coordinate of the whole image
+     * @param  image the image to draw part of
+     * @param  sx the left column of the part, in pixels of the image
+     * @param  sy the top row of the part, in pixels of the image
+     * @param  sw the width of the part in pixels
+     * @param  sh the height of the part in pixels
+     * @throws IllegalArgumentException if {@code x} or {@code y} is either NaN or infinite
+     * @throws IllegalArgumentException if {@code image} is {@code null}
+     */
+    public static void picture(double x, double y, BufferedImage image, int sx, int sy, int sw, int sh) {
+        validate(x, "x");
+        validate(y, "y");
+        validateNotNull(image, "image");
+
+        AffineTransform transform = offscreen.getTransform();
+        int xs = (int) Math.round(transform.getScaleX() * scaleX(x) - image.getWidth() / 2.0) + sx;
+        int ys = (int) Math.round(transform.getScaleY() * scaleY(y) - image.getHeight() / 2.0) + sy;
+        offscreen.setTransform(new AffineTransform());
+        offscreen.drawImage(image, xs, ys, xs + sw, ys + sh, sx, sy, sx + sw, sy + sh, null);
+        offscreen.setTransform(transform);
+        draw();
+    }
+
+    /**
+     * Returns the number of pixels the canvas has across the given width.
+     *
+     * @param  w a width in user coordinates
+     * @return the number of pixels, at least 1
+     */
+    public static int pixelsX(double w) {
+        return (int) Math.max(1, Math.round(offscreen.getTransform().getScaleX() * factorX(w)));
+    }
+
+    /**
+     * Returns the number of pixels the canvas has across the given height.
+     *
+     * @param  h a height in user coordinates
+     * @return the number of pixels, at least 1
+     */
+    public static int pixelsY(double h) {
+        return (int) Math.max(1, Math.round(offscreen.getTransform().getScaleY() * factorY(h)));
+    }
+
    /***************************************************************************
     *  Drawing text.
     ***************************************************************************/
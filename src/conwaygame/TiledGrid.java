@@ -0,0 +1,215 @@
+package conwaygame;
+/*
+ * Bit-packed board split into 64x64 tiles (64 rows of one packed word) that skips the
+ * tiles where nothing can happen. A tile can only change if it or one of its eight
+ * neighboring tiles changed in the previous generation, every other tile is left alone.
+ *
+ * Skipping needs no copying: the scratch buffer still holds the previous generation, and
+ * a tile that did not change last generation is the same there as in the current one,
+ * which is also what it will be next generation.
+ *
+ * On a pool, large boards are stepped in bands of tile rows. A band only writes the words
+ * and change flags of its own tiles, so bands never get in each other's way.
+ */
+import java.util.Arrays;
+
+public class TiledGrid extends PackedGrid {
+
+    public static final int TILE_SIZE = 64;
+
+    private final int tileRows;
+    private final int tileCols;
+    private boolean[] changed; // Tiles that changed in the last generation
+    private boolean[] nextChanged; // Scratch flags for the generation being computed, swapped each step
+    private int activeTiles; // Tiles computed in the last generation
+    private final int[] activeInRow; // Tiles computed in each row of tiles, added up into activeTiles
+    private long version; // Goes up by one with every step and every edit
+    private final long[] changedAt; // Version each tile last changed at, for readers that only want the changes
+    private long hash; // stateHash() of the current generation, kept up to date while tracked
+    private long[] hashInRow; // Hash change of each row of tiles in the last step, null unless tracked
+
+    /**
+     * Creates a tiled copy of a boolean[][] grid (true denotes an ALIVE cell)
+     *
+     * @param grid grid to copy
+     */
+    public TiledGrid(boolean[][] grid) {
+        super(grid);
+        tileRows = (rows + TILE_SIZE - 1) / TILE_SIZE;
+        tileCols = wordsPerRow;
+        changed = new boolean[tileRows * tileCols];
+        nextChanged = new boolean[tileRows * tileCols];
+        activeInRow = new int[tileRows];
+        changedAt = new long[tileRows * tileCols];
+        Arrays.fill(changed, true); // Nothing is known to be stable yet
+        activeTiles = changed.length;
+    }
+
+    /**
+     * Returns the number of tiles computed in the last generation
+     *
+     * @return int for active tiles, every tile before the first generation
+     */
+    public int getActiveTiles() {
+        return activeTiles;
+    }
+
+    /**
+     * Returns the number of tiles the board is split into
+     *
+     * @return int for total tiles
+     */
+    public int getTotalTiles() {
+        return changed.length;
+    }
+
+    /**
+     * Returns a count that goes up with every generation and every edit, to be handed
+     * back to changedSince() later
+     *
+     * @return long for the version of the board
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Returns whether a tile changed after a version returned by getVersion(), for readers
+     * that keep a copy of the board and only want to look at what changed since
+     *
+     * @param tileRow row of the tile, cells tileRow * TILE_SIZE onwards
+     * @param tileCol column of the tile, cells tileCol * 64 onwards
+     * @param since   version the reader's copy is of
+     * @return true if a cell of the tile may differ from that version
+     */
+    public boolean changedSince(int tileRow, int tileCol, long since) {
+        return changedAt[tileRow * tileCols + tileCol] > since;
+    }
+
+    public void setCellState(int row, int col, boolean alive) {
+        int i = row * wordsPerRow + (col >>> 6);
+        long old = words[i];
+        super.setCellState(row, col, alive);
+        if (hashInRow != null)
+            hash ^= wordHash(i, old) ^ wordHash(i, words[i]);
+        int tile = (row / TILE_SIZE) * tileCols + (col >>> 6);
+        changed[tile] = true;
+        changedAt[tile] = ++version;
+    }
+
+    /**
+     * Advances the board by one generation, only computing the tiles next to a change.
+     * Boards of PARALLEL_THRESHOLD cells or more are stepped in bands of tile rows when a
+     * pool is set.
+     */
+    public void nextGeneration() {
+        if (pool != null && (long) rows * cols >= PARALLEL_THRESHOLD) {
+            RowBands bands = new RowBands(this::stepTileRows, 0, tileRows,
+                    RowBands.bandRows(tileRows, pool.getParallelism()));
+            pool.invoke(bands);
+            totalAliveCells += bands.getTotal();
+        } else {
+            totalAliveCells += stepTileRows(0, tileRows);
+        }
+        activeTiles = 0;
+        for (int count : activeInRow)
+            activeTiles += count;
+        if (hashInRow != null)
+            for (long change : hashInRow)
+                hash ^= change;
+        version++;
+        swap();
+        boolean[] temp = changed;
+        changed = nextChanged;
+        nextChanged = temp;
+    }
+
+    /**
+     * Writes the next generation of the tiles next to a change in tile rows
+     * [fromTileRow, toTileRow) into the scratch buffer
+     *
+     * @return births minus deaths in those tiles
+     */
+    private int stepTileRows(int fromTileRow, int toTileRow) {
+        int delta = 0;
+        for (int tr = fromTileRow; tr < toTileRow; tr++) {
+            int active = 0;
+            for (int tc = 0; tc < tileCols; tc++) {
+                int tile = tr * tileCols + tc;
+                nextChanged[tile] = false;
+                if (!nearChange(tr, tc))
+                    continue;
+                active++;
+
+                int lastRow = Math.min(rows, (tr + 1) * TILE_SIZE);
+                for (int r = tr * TILE_SIZE; r < lastRow; r++) {
+                    int i = r * wordsPerRow + tc;
+                    long word = stepWord(r, tc);
+                    if (word != words[i]) {
+                        nextChanged[tile] = true;
+                        changedAt[tile] = version + 1; // The version this step is about to become
+                        delta += Long.bitCount(word) - Long.bitCount(words[i]);
+                    }
+                    next[i] = word;
+                }
+            }
+            activeInRow[tr] = active;
+            if (hashInRow != null)
+                hashInRow[tr] = hashChange(tr);
+        }
+        return delta;
+    }
+
+    /**
+     * Returns the running hash while it is tracked, otherwise hashes every word
+     */
+    public long stateHash() {
+        return (hashInRow != null) ? hash : super.stateHash();
+    }
+
+    /**
+     * Keeps the hash up to date while stepping. Only the tiles that changed are looked
+     * at, every word of theirs that changed swaps its old hash for its new one, so a
+     * mostly still board costs next to nothing to hash.
+     */
+    public void setHashTracking(boolean on) {
+        hashInRow = null;
+        if (on) {
+            hash = super.stateHash();
+            hashInRow = new long[tileRows];
+        }
+    }
+
+    /**
+     * Returns how the hash changes in the tiles of tile row tr that changed in the step
+     * being computed. Done after the tile row is stepped, the stepping loop itself gets
+     * slower with it inside.
+     */
+    private long hashChange(int tr) {
+        long change = 0;
+        int lastRow = Math.min(rows, (tr + 1) * TILE_SIZE);
+        for (int tc = 0; tc < tileCols; tc++) {
+            if (!nextChanged[tr * tileCols + tc])
+                continue;
+            for (int r = tr * TILE_SIZE; r < lastRow; r++) {
+                int i = r * wordsPerRow + tc;
+                if (next[i] != words[i])
+                    change ^= wordHash(i, words[i]) ^ wordHash(i, next[i]);
+            }
+        }
+        return change;
+    }
+
+    /**
+     * Returns true if the tile or any of its eight neighbors (wrapping around) changed
+     */
+    private boolean nearChange(int tr, int tc) {
+        for (int dr = -1; dr <= 1; dr++) {
+            int r = Math.floorMod(tr + dr, tileRows);
+            for (int dc = -1; dc <= 1; dc++)
+                if (changed[r * tileCols + Math.floorMod(tc + dc, tileCols)])
+                    return true;
+        }
+        return false;
+    }
+}